@@ -0,0 +1,101 @@
+//**************************************************************
+//  AklToussaint.java
+//
+//  Akl-Toussaint heuristic: the points extreme in the eight
+//  directions of the axes and diagonals span an octagon inside
+//  the hull, and no point strictly inside it can be on the hull.
+//  One linear pass finds the octagon and a second one drops the
+//  points inside, which is most of them for uniform data.
+//*************************************************************
+
+import java.util.Arrays;
+
+public class AklToussaint {
+	private AklToussaint() {
+	}
+
+	//-----------------------------------------------------------
+	//  Returns the indices of the points not strictly inside the
+	//  octagon, in increasing order. Every point of the hull is
+	//  among them
+	//-----------------------------------------------------------
+	public static int[] filter(PointStore ps) {
+		int n = ps.size();
+		int[] x = ps.getXs(), y = ps.getYs();
+
+		Octagon o = new Octagon();
+		for (int i = 0; i < n; i++) {
+			o.include(x[i], y[i]);
+		}
+		o.close();
+
+		int[] kept = new int[n];
+		int count = 0;
+		for (int i = 0; i < n; i++) {
+			if (!o.inside(x[i], y[i])) kept[count++] = i;
+		}
+		return (count == n) ? kept : Arrays.copyOf(kept, count);
+	}
+
+	//-----------------------------------------------------------
+	//  The octagon of the points given to include, by value so
+	//  they need not be in a PointStore. close it before asking
+	//  what is inside
+	//-----------------------------------------------------------
+	static class Octagon {
+		// extreme in the directions left, down-left, down, down-right, right, up-right,
+		// up and up-left: counter-clockwise around the octagon, taking y upwards
+		private int[] vx = new int[8], vy = new int[8];
+
+		// points included, then the corners left once closed
+		private int m;
+
+		void include(int px, int py) {
+			if (m == 0) {
+				Arrays.fill(vx, px);
+				Arrays.fill(vy, py);
+				m = 1;
+				return;
+			}
+			long sum = (long)px + py, diff = (long)px - py;
+			if (px < vx[0]) set(0, px, py);
+			if (sum < (long)vx[1] + vy[1]) set(1, px, py);
+			if (py < vy[2]) set(2, px, py);
+			if (diff > (long)vx[3] - vy[3]) set(3, px, py);
+			if (px > vx[4]) set(4, px, py);
+			if (sum > (long)vx[5] + vy[5]) set(5, px, py);
+			if (py > vy[6]) set(6, px, py);
+			if (diff < (long)vx[7] - vy[7]) set(7, px, py);
+		}
+
+		private void set(int k, int px, int py) {
+			vx[k] = px;
+			vy[k] = py;
+		}
+
+		void close() {
+			if (m == 0) {
+				return;
+			}
+
+			// one point may be extreme in several directions
+			m = 0;
+			for (int k = 0; k < 8; k++) {
+				if ((m == 0) || (vx[k] != vx[m - 1]) || (vy[k] != vy[m - 1])) set(m++, vx[k], vy[k]);
+			}
+			while ((m > 1) && (vx[m - 1] == vx[0]) && (vy[m - 1] == vy[0])) m--;
+		}
+
+		// strictly inside, never with less than three corners as there is no inside to speak of
+		boolean inside(int px, int py) {
+			if (m < 3) {
+				return false;
+			}
+			for (int k = 0; k < m; k++) {
+				int b = (k + 1 == m) ? 0 : k + 1;
+				if (MathHelper.areaSign(vx[k], vy[k], vx[b], vy[b], px, py) <= 0) return false;
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,96 @@
+import java.util.*;
+
+// check that the beach line stays an AVL tree of logarithmic height, run with
+//   java -Xmx2g BeachLineDepthCheck [seed]
+// the sweep is driven here event by event over inputs that would make an unbalanced beach
+// line degenerate into a list: sites sorted by x, on a diagonal and on a parabola. After
+// every event the height has to stay within 1.45 log2(n), the AVL bound. The stored heights
+// and balance factors are verified after every event for 2^14 sites, and every 2^16 events
+// for 1M sites, where a full walk of the tree after each event would take hours.
+// Exits with status 1 on the first failure
+public class BeachLineDepthCheck{
+	private static final int LARGE = 1000000;
+	private static final int SMALL = 1 << 14;
+	private static final int LARGE_PERIOD = 1 << 16;
+
+	private EventQueue Q = new EventQueue();
+	private ModifiedAvlTree T = new ModifiedAvlTree();
+	private VoronoiDcel D = new VoronoiDcel();
+	private int checks;
+
+	public static void main(String[] args){
+		long seed = (args.length > 0) ? Long.parseLong(args[0]) : 1;
+		BeachLineDepthCheck c = new BeachLineDepthCheck();
+
+		for (int n : new int[] {SMALL, LARGE}){
+			int period = (n == LARGE) ? LARGE_PERIOD : 1;
+			Random r = new Random(seed);
+
+			// sorted by x, at random heights
+			PointStore ps = new PointStore(n);
+			for (int i = 0; i < n; i++){
+				ps.add(i, r.nextInt(n));
+			}
+			c.run("x-sorted x" + n, ps, period);
+
+			// on the diagonal, every new arc goes right of all the others
+			ps = new PointStore(n);
+			for (int i = 0; i < n; i++){
+				ps.add(i, i);
+			}
+			c.run("diagonal x" + n, ps, period);
+
+			// on a parabola, every site ends up on the hull
+			ps = new PointStore(n);
+			for (int i = 0; i < n; i++){
+				long d = i - n/2;
+				ps.add(i, (int)(d*d / n));
+			}
+			c.run("parabola x" + n, ps, period);
+		}
+
+		System.out.println("BeachLineDepthCheck: " + c.checks + " events checked");
+	}
+
+	// the sweep of VoronoiGenerator, checking the beach line after every event
+	private void run(String name, PointStore sites, int period){
+		double bound = 1.45 * Math.log(sites.size()) / Math.log(2);
+		int maxHeight = 0;
+		long events = 0;
+
+		T.reset(sites);
+		D.reset(sites.size());
+		Q.reset(sites);
+		while (!Q.isEmpty()){
+			if (Q.nextIsSite()){
+				int i = Q.pollSite();
+				if (T.isEmpty()){
+					T.setRoot(i);
+				}else{
+					T.splitArcAndHandleQueue(i, Q, D);
+				}
+			}else{
+				T.removeArc(Q.pollCircle(), Q, D);
+			}
+			events++;
+			checks++;
+
+			int h = T.getHeight();
+			maxHeight = Math.max(maxHeight, h);
+			if (h > bound){
+				fail(name, "height " + h + " after event " + events + ", over " + bound);
+			}
+			if ((events % period == 0) && !T.isBalanced()){
+				fail(name, "unbalanced after event " + events);
+			}
+		}
+		if (!T.isBalanced()) fail(name, "unbalanced after the last event");
+
+		System.out.println(name + ": " + events + " events, max height " + maxHeight);
+	}
+
+	private static void fail(String name, String why){
+		System.err.println("BeachLineDepthCheck: " + name + ": " + why);
+		System.exit(1);
+	}
+}
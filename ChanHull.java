@@ -0,0 +1,255 @@
+//**************************************************************
+//  ChanHull.java
+//
+//  Chan's output sensitive convex hull, O(N log H) for a hull of
+//  H points. For a guess m of H the points are cut into groups of
+//  m, each group gets its hull by monotone chain, and the hull is
+//  wrapped from the left most point, asking every group for its
+//  tangent by binary search. When m steps are not enough the
+//  guess is squared and it starts over.
+//
+//  The hull comes out like ConvexHull's, the indices of its
+//  points clockwise from the left most one, with no point in the
+//  middle of an edge.
+//*************************************************************
+
+import java.util.Arrays;
+
+public class ChanHull {
+	// groups with at most this many hull points are scanned instead of searched
+	private static final int SCAN = 8;
+
+	// the first guess is m = 2^(2^FIRST_GUESS). The smaller ones cost a pass over every
+	// group each and hardly ever fit a hull
+	private static final int FIRST_GUESS = 3;
+
+	private int[] x, y;
+	private long[] key;
+	private int n;
+
+	// the left most point, where the wrap starts
+	private int first;
+
+	// point indices, sorted by key inside each group of the current guess
+	private int[] idx;
+
+	// the hull of group g is hull[g*m..g*m+size[g]-1], clockwise from its left most
+	// point, and its right most point is at position right[g]
+	private int[] hull, size, right;
+
+	// scratch for building one group
+	private int[] distinct, stack;
+
+	// the best next point of the wrap so far
+	private int best;
+
+	private ChanHull(PointStore ps) {
+		x = ps.getXs();
+		y = ps.getYs();
+		n = ps.size();
+
+		key = new long[n];
+		idx = new int[n];
+		hull = new int[n];
+		for (int i = 0; i < n; i++) {
+			key[i] = ps.keyX(i);
+			idx[i] = i;
+			if (key[i] < key[first]) first = i;
+		}
+	}
+
+	//-----------------------------------------------------------
+	//  Returns the indices of the convex hull's points, clockwise
+	//-----------------------------------------------------------
+	public static int[] findConvexHull(PointStore ps) {
+		if (ps.size() == 0) {
+			return new int[0];
+		}
+
+		ChanHull c = new ChanHull(ps);
+		for (int t = FIRST_GUESS; ; t++) {
+			// m = 2^(2^t): 256, 65536, then everything
+			int m = (t >= 5) ? c.n : (int)Math.min(c.n, 1L << (1 << t));
+			int[] result = c.wrap(m);
+			if (result != null) return result;
+		}
+	}
+
+	//-----------------------------------------------------------
+	//  Wraps the hull with groups of m points, returns null if it
+	//  has more than m points
+	//-----------------------------------------------------------
+	private int[] wrap(int m) {
+		int groups = (n + m - 1) / m;
+		size = new int[groups];
+		right = new int[groups];
+		distinct = new int[m];
+		stack = new int[m + 1];
+		for (int g = 0; g < groups; g++) {
+			buildGroup(g, m);
+		}
+
+		int[] out = new int[Math.min(n, m)];
+		int count = 0;
+		out[count++] = first;
+
+		int p = first;
+		while (true) {
+			best = -1;
+			for (int g = 0; g < groups; g++) {
+				offer(p, g * m, size[g], right[g]);
+			}
+
+			// back at the start, or nothing but p
+			if ((best < 0) || (key[best] == key[first])) return Arrays.copyOf(out, count);
+			if (count == out.length) return null;
+
+			out[count++] = best;
+			p = best;
+		}
+	}
+
+	// sorts the points of group g, drops the repeated ones and chains them
+	private void buildGroup(int g, int m) {
+		int lo = g * m, hi = Math.min(n, lo + m);
+		PointStore.sort(idx, key, lo, hi - 1);
+
+		int d = 0;
+		for (int i = lo; i < hi; i++) {
+			if ((d == 0) || (key[idx[i]] != key[distinct[d - 1]])) distinct[d++] = idx[i];
+		}
+
+		int h = MonotoneChain.chain(x, y, distinct, 0, d, stack);
+		System.arraycopy(stack, 0, hull, lo, h);
+		size[g] = h;
+
+		// the first chain goes up in key to the right most point
+		int r = 0;
+		while ((r + 1 < h) && (key[stack[r + 1]] > key[stack[r]])) r++;
+		right[g] = r;
+	}
+
+	//-----------------------------------------------------------
+	//  Offers the points of the group hull hull[lo..lo+k-1] that
+	//  can follow p on the whole hull
+	//-----------------------------------------------------------
+	private void offer(int p, int lo, int k, int r) {
+		int at = find(p, lo, k, r);
+		if (at >= 0) {
+			// p is on this hull, the group's next point is
+			if (k > 1) consider(p, hull[lo + ((at + 1 == k) ? 0 : at + 1)]);
+		} else if (k <= SCAN) {
+			for (int i = 0; i < k; i++) {
+				consider(p, hull[lo + i]);
+			}
+		} else {
+			tangent(p, lo, k);
+		}
+	}
+
+	// position of the point with p's coordinates on the group hull, or -1. The keys
+	// go up along positions 0..r and down along r..k-1
+	private int find(int p, int lo, int k, int r) {
+		long kp = key[p];
+		int a = 0, b = r;
+		while (a <= b) {
+			int c = (a + b) >>> 1;
+			long kc = key[hull[lo + c]];
+			if (kc == kp) return c;
+			if (kc < kp) a = c + 1; else b = c - 1;
+		}
+		a = r + 1;
+		b = k - 1;
+		while (a <= b) {
+			int c = (a + b) >>> 1;
+			long kc = key[hull[lo + c]];
+			if (kc == kp) return c;
+			if (kc > kp) a = c + 1; else b = c - 1;
+		}
+		return -1;
+	}
+
+	//-----------------------------------------------------------
+	//  Tangent from p, outside the group hull, to the hull: seen
+	//  from p the points go around a turn of less than half, so the
+	//  one furthest to the left is the top of a cyclic bitonic run.
+	//  Binary search for it (O'Rourke's extreme point search with
+	//  the turn from p as the height)
+	//-----------------------------------------------------------
+	private void tangent(int p, int lo, int k) {
+		int a = 0, b = k;
+		boolean upA = up(p, lo, k, 0);
+		if (!upA && !above(p, lo, k - 1, 0)) {
+			around(p, lo, k, 0);
+			return;
+		}
+
+		while (b - a > 2) {
+			int c = (a + b) >>> 1;
+			boolean upC = up(p, lo, k, c);
+			if (!upC && !above(p, lo, c - 1, c)) {
+				around(p, lo, k, c);
+				return;
+			}
+
+			if (upA) {
+				if (!upC || above(p, lo, a, c)) {
+					b = c;
+				} else {
+					a = c;
+					upA = upC;
+				}
+			} else {
+				if (!upC && above(p, lo, c, a)) {
+					b = c;
+				} else {
+					a = c;
+					upA = upC;
+				}
+			}
+		}
+
+		for (int i = a; i <= b; i++) {
+			consider(p, hull[lo + ((i == k) ? 0 : i)]);
+		}
+	}
+
+	// the top c and its neighbours, one of them may be level with it
+	private void around(int p, int lo, int k, int c) {
+		consider(p, hull[lo + ((c == 0) ? k - 1 : c - 1)]);
+		consider(p, hull[lo + c]);
+		consider(p, hull[lo + ((c + 1 == k) ? 0 : c + 1)]);
+	}
+
+	// the point after position i is further left seen from p
+	private boolean up(int p, int lo, int k, int i) {
+		int a = hull[lo + i], b = hull[lo + ((i + 1 == k) ? 0 : i + 1)];
+		return orient(p, a, b) > 0;
+	}
+
+	// the point at position i is further left seen from p than the one at position j
+	private boolean above(int p, int lo, int i, int j) {
+		return orient(p, hull[lo + j], hull[lo + i]) > 0;
+	}
+
+	//-----------------------------------------------------------
+	//  Keeps c as the next point after p if it is left of the line
+	//  from p to the best one so far, or on it and further away
+	//-----------------------------------------------------------
+	private void consider(int p, int c) {
+		if (key[c] == key[p]) return;
+		if (best < 0) {
+			best = c;
+			return;
+		}
+
+		int o = orient(p, best, c);
+		if ((o > 0) || ((o == 0) && (Predicates.compareDistance(x[p], y[p], x[c], y[c], x[p], y[p], x[best], y[best]) > 0))) {
+			best = c;
+		}
+	}
+
+	private int orient(int a, int b, int c) {
+		return MathHelper.areaSign(x[a], y[a], x[b], y[b], x[c], y[c]);
+	}
+}
@@ -0,0 +1,130 @@
+import java.util.*;
+
+// rectangle the voronoi edges are cut to, or NONE to keep them whole
+// an edge is given in parametric form, the points (x + t*dx, y + t*dy) for tMin <= t <= tMax,
+// so a segment has t in [0, 1], a ray [0, inf) and a whole line (-inf, inf). Edge buffers
+// hold EDGE_STRIDE doubles per edge in the order x, y, dx, dy, tMin, tMax, clipped
+// segments SEGMENT_STRIDE doubles in the order x1, y1, x2, y2
+public class ClipWindow{
+	public static final int EDGE_STRIDE = 6;
+	public static final int SEGMENT_STRIDE = 4;
+
+	// no clipping, only edges of finite length come out of clip
+	public static final ClipWindow NONE = new ClipWindow();
+
+	private final boolean bounded;
+	private final double minX, minY, maxX, maxY;
+
+	private ClipWindow(){
+		bounded = false;
+		minX = minY = Double.NEGATIVE_INFINITY;
+		maxX = maxY = Double.POSITIVE_INFINITY;
+	}
+
+	public ClipWindow(double minX, double minY, double maxX, double maxY){
+		if (!(minX <= maxX) || !(minY <= maxY)){
+			throw new IllegalArgumentException("empty clip window");
+		}
+		this.bounded = true;
+		this.minX = minX;
+		this.minY = minY;
+		this.maxX = maxX;
+		this.maxY = maxY;
+	}
+
+	public boolean isBounded(){ return bounded; }
+	public double getMinX(){ return minX; }
+	public double getMinY(){ return minY; }
+	public double getMaxX(){ return maxX; }
+	public double getMaxY(){ return maxY; }
+
+	//-----------------------------------------------------------
+	//  Liang-Barsky, cuts the edge to the window and writes the
+	//  remaining segment to out[o..o+3]. Returns false if nothing
+	//  of the edge is left, or if it is unbounded and so is the
+	//  window
+	//-----------------------------------------------------------
+	public boolean clip(double x, double y, double dx, double dy, double tMin, double tMax, double[] out, int o){
+		if (bounded){
+			// one boundary at a time, p is the speed towards it and q the room left
+			double p, q;
+
+			p = -dx; q = x - minX;
+			if (p == 0){ if (q < 0) return false; }
+			else if (p < 0){ tMin = Math.max(tMin, q / p); } else { tMax = Math.min(tMax, q / p); }
+
+			p = dx; q = maxX - x;
+			if (p == 0){ if (q < 0) return false; }
+			else if (p < 0){ tMin = Math.max(tMin, q / p); } else { tMax = Math.min(tMax, q / p); }
+
+			p = -dy; q = y - minY;
+			if (p == 0){ if (q < 0) return false; }
+			else if (p < 0){ tMin = Math.max(tMin, q / p); } else { tMax = Math.min(tMax, q / p); }
+
+			p = dy; q = maxY - y;
+			if (p == 0){ if (q < 0) return false; }
+			else if (p < 0){ tMin = Math.max(tMin, q / p); } else { tMax = Math.min(tMax, q / p); }
+
+			if (tMin > tMax) return false;
+		}else if (Double.isInfinite(tMin) || Double.isInfinite(tMax)){
+			return false;
+		}
+
+		out[o] = x + tMin*dx;
+		out[o + 1] = y + tMin*dy;
+		out[o + 2] = x + tMax*dx;
+		out[o + 3] = y + tMax*dy;
+
+		// t*d may round to just past the boundary it was cut at
+		if (bounded){
+			out[o] = Math.min(Math.max(out[o], minX), maxX);
+			out[o + 1] = Math.min(Math.max(out[o + 1], minY), maxY);
+			out[o + 2] = Math.min(Math.max(out[o + 2], minX), maxX);
+			out[o + 3] = Math.min(Math.max(out[o + 3], minY), maxY);
+		}
+		return true;
+	}
+
+	//-----------------------------------------------------------
+	//  Clips count edges of the buffer edges into out, which needs
+	//  room for SEGMENT_STRIDE*count doubles. Returns the number of
+	//  segments written
+	//-----------------------------------------------------------
+	public int clip(double[] edges, int count, double[] out){
+		int kept = 0;
+		for (int k = 0, e = 0; k < count; k++, e += EDGE_STRIDE){
+			if (clip(edges[e], edges[e + 1], edges[e + 2], edges[e + 3], edges[e + 4], edges[e + 5], out, SEGMENT_STRIDE*kept)){
+				kept++;
+			}
+		}
+		return kept;
+	}
+
+	//-----------------------------------------------------------
+	//  A sink that cuts what it receives to this window and hands
+	//  the rest to sink: vertices inside the window, and edges and
+	//  rays as the segments left of them. NONE passes everything on
+	//-----------------------------------------------------------
+	public VoronoiEdgeSink clipping(final VoronoiEdgeSink sink){
+		if (!bounded) return sink;
+
+		final double[] segment = new double[SEGMENT_STRIDE];
+		return new VoronoiEdgeSink(){
+			public void vertex(double x, double y){
+				if ((minX <= x) && (x <= maxX) && (minY <= y) && (y <= maxY)) sink.vertex(x, y);
+			}
+
+			public void edge(double x1, double y1, double x2, double y2){
+				if (clip(x1, y1, x2 - x1, y2 - y1, 0, 1, segment, 0)){
+					sink.edge(segment[0], segment[1], segment[2], segment[3]);
+				}
+			}
+
+			public void ray(double x, double y, double dx, double dy){
+				if (clip(x, y, dx, dy, 0, Double.POSITIVE_INFINITY, segment, 0)){
+					sink.edge(segment[0], segment[1], segment[2], segment[3]);
+				}
+			}
+		};
+	}
+}
@@ -0,0 +1,164 @@
+//**************************************************************
+//  ClosestPair.java
+//
+//  Finds the closest pair among the points in a PointStore, using
+//  O(N log N) divide and conquer algorithm. Points are referred
+//  to by their index in the store. The halves are ranges of the
+//  order by x, and each half comes back sorted by y in the same
+//  range of the order, so one scratch array of N is all that is
+//  allocated.
+//*************************************************************
+
+import java.util.ArrayList;
+import java.awt.*;
+
+public class ClosestPair {
+	private PointStore ps;
+	private int[] x, y;
+
+	// indices of the distinct points, sorted by x then by y. order[l..r] gets sorted
+	// by y once it is solved, its split in x is read before that
+	private int[] order;
+
+	// for merging two halves and for the middle stripe
+	private int[] scratch;
+
+	// the closest pair found so far, -1 if none
+	private int pairA, pairB;
+
+	// squared distance of the pair when every squared distance fits a long
+	private boolean narrow;
+	private long best;
+
+	private ClosestPair(PointStore ps, int[] order, int n) {
+		this.ps = ps;
+		this.x = ps.getXs();
+		this.y = ps.getYs();
+		this.order = order;
+		pairA = pairB = -1;
+		best = Long.MAX_VALUE;
+
+		scratch = new int[n];
+
+		// with both spans below 2^31 a squared distance is below 2^63
+		int minY = y[order[0]], maxY = minY;
+		for (int i = 1; i < n; i++) {
+			minY = Math.min(minY, y[order[i]]);
+			maxY = Math.max(maxY, y[order[i]]);
+		}
+		narrow = ((long)x[order[n - 1]] - x[order[0]] <= Integer.MAX_VALUE) && ((long)maxY - minY <= Integer.MAX_VALUE);
+	}
+
+	//-----------------------------------------------------------
+	//  Returns the indices of the two closest distinct points,
+	//  or null if there are less than two distinct points
+	//-----------------------------------------------------------
+	public static int[] findClosestPair(PointStore ps) {
+		int[] order = ps.sortByX();
+		int n = ps.unique(order, order.length);
+		if (n < 2) {
+			return null;
+		}
+
+		ClosestPair cp = new ClosestPair(ps, order, n);
+		cp.dividePoint(0, n - 1);
+		return new int[] {cp.pairA, cp.pairB};
+	}
+
+	//-----------------------------------------------------------
+	//  Point adapter, returns the two closest points or null
+	//-----------------------------------------------------------
+	public static Point[] findClosestPair(ArrayList<Point> pointList) {
+		int[] ids = findClosestPair(PointStore.fromPoints(pointList));
+		if (ids == null) {
+			return null;
+		}
+		return new Point[] {pointList.get(ids[0]), pointList.get(ids[1])};
+	}
+
+	//-----------------------------------------------------------
+	//  Takes a and b as the pair if they are strictly closer. In
+	//  long when narrow, else exact by Predicates.compareDistance
+	//-----------------------------------------------------------
+	private void consider(int a, int b) {
+		if (narrow) {
+			long dx = (long)x[a] - x[b], dy = (long)y[a] - y[b];
+			long d = dx*dx + dy*dy;
+			if (d < best) {
+				best = d;
+				pairA = a;
+				pairB = b;
+			}
+		} else if ((pairA < 0) || (Predicates.compareDistance(x[a], y[a], x[b], y[b], x[pairA], y[pairA], x[pairB], y[pairB]) < 0)) {
+			pairA = a;
+			pairB = b;
+		}
+	}
+
+	// checks if |u - v| is no more than the pair's distance
+	private boolean within(int u, int v) {
+		if (narrow) {
+			long d = (long)u - v;
+			return d*d <= best;
+		}
+		return Predicates.compareDistance(u, 0, v, 0, x[pairA], y[pairA], x[pairB], y[pairB]) <= 0;
+	}
+
+	//-----------------------------------------------------------
+	//  Finding closest pair between order[xLeft..xRight]
+	//  Stores the pair in pairA and pairB, and leaves the same
+	//  points sorted by y in order[xLeft..xRight]
+	//-----------------------------------------------------------
+	private void dividePoint(int xLeft, int xRight) {
+		//base case
+		if(xRight - xLeft + 1 <= 3) {
+			for(int i = xLeft; i < xRight; i++)
+				for(int j = i + 1; j <= xRight; j++)
+					consider(order[i], order[j]);
+
+			//insertion sort by y
+			for(int i = xLeft + 1; i <= xRight; i++) {
+				int now = order[i];
+				int j = i - 1;
+				for(; j >= xLeft && ps.keyY(order[j]) > ps.keyY(now); j--) order[j + 1] = order[j];
+				order[j + 1] = now;
+			}
+
+			//no need to proceed
+			return;
+		}
+
+		int xMid = (xLeft + xRight) / 2;
+		int xSplit = x[order[xMid]];
+
+		//recursively finds the closest pair, both halves come back sorted by y
+		dividePoint(xLeft, xMid);
+		dividePoint(xMid + 1, xRight);
+		merge(xLeft, xMid, xRight);
+
+		//going through the points by y, so we get the points in the middle stripe,
+		//no farther in x from the split than the closest pair right now
+		int m = 0;
+		for(int i = xLeft; i <= xRight; i++)
+			if(within(x[order[i]], xSplit)) scratch[m++] = order[i];
+
+		//finding the possible closest pair in the middle stripe,
+		//going up until the y distance alone is too much
+		for(int i = 0; i < m; i++)
+			for(int j = i + 1; j < m && within(y[scratch[j]], y[scratch[i]]); j++)
+				consider(scratch[i], scratch[j]);
+	}
+
+	//-----------------------------------------------------------
+	//  Merges the sorted by y order[l..m] and order[m+1..r], through
+	//  scratch
+	//-----------------------------------------------------------
+	private void merge(int l, int m, int r) {
+		System.arraycopy(order, l, scratch, l, r - l + 1);
+		int i = l, j = m + 1;
+		for(int k = l; k <= r; k++) {
+			if(j > r || (i <= m && ps.keyY(scratch[i]) <= ps.keyY(scratch[j]))) order[k] = scratch[i++];
+			else order[k] = scratch[j++];
+		}
+	}
+}
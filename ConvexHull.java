@@ -0,0 +1,468 @@
+//**************************************************************
+//  ConvexHull.java
+//
+//  Finds the convex hull of the points in a PointStore, using
+//  O(N log N) divide and conquer algorithm. Points are referred
+//  to by their index in the store.
+//*************************************************************
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.awt.*;
+
+public class ConvexHull {
+	// the ways findConvexHull(ps, strategy, prefilter) can find the hull, all with
+	// the same result
+	public enum Strategy { DIVIDE_AND_CONQUER, MONOTONE_CHAIN, CHAN, AUTO }
+
+	// parts of at most this many points are solved on one thread by the parallel hull
+	public static final int DEFAULT_CUTOFF = 1 << 15;
+
+	// AUTO looks at the hull of this many points, and takes Chan's algorithm when the
+	// whole hull looks like it has at most AUTO_CHAN_HULL points, the first guess of
+	// ChanHull. Past that Chan has to start over and monotone chain is faster
+	private static final int AUTO_SAMPLE = 1 << 12;
+	private static final int AUTO_CHAN_HULL = 256;
+
+	private int[] x, y;
+
+	// indices of the distinct points, sorted by x then by y
+	private int[] order;
+
+	// the hull of order[l..r] is built in hull[l..], clockwise from the leftmost point
+	// (order[l]). merged is where two of them are joined before going back to hull
+	private int[] hull, merged;
+
+	// order[i..run[i]] is the longest collinear run starting at i
+	private int[] run;
+
+	private ConvexHull(PointStore ps, int[] order, int n) {
+		this.x = ps.getXs();
+		this.y = ps.getYs();
+		this.order = order;
+
+		hull = new int[n];
+		merged = new int[n];
+
+		// one turn test per point, three in a row on a line carry on the run of the next
+		run = new int[n];
+		for (int i = n - 1; i >= 0; i--) {
+			if (i + 2 >= n) run[i] = n - 1;
+			else run[i] = collinear(order[i], order[i + 1], order[i + 2]) ? run[i + 1] : i + 1;
+		}
+	}
+
+	//-----------------------------------------------------------
+	//  Returns the indices of the convex hull's points, clockwise
+	//-----------------------------------------------------------
+	public static int[] findConvexHull(PointStore ps) {
+		if (ps.size() == 0) {
+			return new int[0];
+		}
+
+		int[] order = ps.sortByX();
+		int n = ps.unique(order, order.length);
+
+		ConvexHull h = new ConvexHull(ps, order, n);
+		return Arrays.copyOf(h.hull, sizeOf(h.findConvexHull(0, n - 1)));
+	}
+
+	//-----------------------------------------------------------
+	//  The same hull, with the two halves of every part larger
+	//  than cutoff points solved as fork-join tasks in pool. The
+	//  sort by x is split over the pool the same way
+	//-----------------------------------------------------------
+	public static int[] findConvexHullParallel(PointStore ps) {
+		return findConvexHullParallel(ps, ForkJoinPool.commonPool(), DEFAULT_CUTOFF);
+	}
+
+	public static int[] findConvexHullParallel(PointStore ps, ForkJoinPool pool, int cutoff) {
+		if (ps.size() == 0) {
+			return new int[0];
+		}
+
+		int[] order = ps.sortByX(pool, cutoff);
+		int n = ps.unique(order, order.length);
+
+		ConvexHull h = new ConvexHull(ps, order, n);
+		return Arrays.copyOf(h.hull, sizeOf(pool.invoke(h.new HullTask(0, n - 1, Math.max(cutoff, 4)))));
+	}
+
+	//-----------------------------------------------------------
+	//  The same hull by the given strategy, AUTO picks one from a
+	//  sample of the input. With prefilter the points inside the
+	//  Akl-Toussaint octagon are dropped first
+	//-----------------------------------------------------------
+	public static int[] findConvexHull(PointStore ps, Strategy strategy, boolean prefilter) {
+		PointStore in = ps;
+		int[] kept = null;
+		if (prefilter) {
+			kept = AklToussaint.filter(ps);
+			if (kept.length < ps.size()) {
+				in = new PointStore(kept.length);
+				for (int i = 0; i < kept.length; i++) {
+					in.add(ps.getX(kept[i]), ps.getY(kept[i]));
+				}
+			} else {
+				kept = null;
+			}
+		}
+
+		if (strategy == Strategy.AUTO) {
+			strategy = choose(in);
+		}
+
+		int[] result;
+		switch (strategy) {
+		case MONOTONE_CHAIN:
+			result = MonotoneChain.findConvexHull(in);
+			break;
+		case CHAN:
+			result = ChanHull.findConvexHull(in);
+			break;
+		default:
+			result = findConvexHull(in);
+			break;
+		}
+
+		// back to indices of ps
+		if (kept != null) {
+			for (int i = 0; i < result.length; i++) {
+				result[i] = kept[result[i]];
+			}
+		}
+		return result;
+	}
+
+	//-----------------------------------------------------------
+	//  Picks the strategy for ps from the hull of a sample. Hulls
+	//  of random points grow like the cube root of their number
+	//  for a disc, slower for polygons and Gaussians, so that is
+	//  taken as the growth from the sample to ps
+	//-----------------------------------------------------------
+	static Strategy choose(PointStore ps) {
+		int n = ps.size();
+		if (n <= AUTO_SAMPLE) {
+			return Strategy.MONOTONE_CHAIN;
+		}
+
+		// evenly spread over the input, which may be in any order
+		PointStore sample = new PointStore(AUTO_SAMPLE);
+		for (int i = 0; i < AUTO_SAMPLE; i++) {
+			int j = (int)((long)i * n / AUTO_SAMPLE);
+			sample.add(ps.getX(j), ps.getY(j));
+		}
+		int h = MonotoneChain.findConvexHull(sample).length;
+
+		double estimate = h * Math.cbrt((double)n / AUTO_SAMPLE);
+		return (estimate <= AUTO_CHAN_HULL) ? Strategy.CHAN : Strategy.MONOTONE_CHAIN;
+	}
+
+	//-----------------------------------------------------------
+	//  Point adapter, returns the hull's points clockwise
+	//-----------------------------------------------------------
+	public static ArrayList<Point> findConvexHull(ArrayList<Point> pointList) {
+		return findConvexHull(pointList, Strategy.DIVIDE_AND_CONQUER, false);
+	}
+
+	public static ArrayList<Point> findConvexHull(ArrayList<Point> pointList, Strategy strategy, boolean prefilter) {
+		int[] ids = findConvexHull(PointStore.fromPoints(pointList), strategy, prefilter);
+
+		ArrayList<Point> result = new ArrayList<Point>();
+		for (int i = 0; i < ids.length; i++) {
+			result.add(pointList.get(ids[i]));
+		}
+		return result;
+	}
+
+	//-----------------------------------------------------------
+	//  Returns the area enclosed by a hull, given as indices into
+	//  ps in either turning order
+	//-----------------------------------------------------------
+	public static double getArea(PointStore ps, int[] hull) {
+		if (hull.length < 3) {
+			return 0;
+		}
+
+		// shoelace relative to the first point, the coordinates may be large
+		double ox = ps.getX(hull[0]), oy = ps.getY(hull[0]);
+		double sum = 0;
+		for (int i = 1; i + 1 < hull.length; i++) {
+			double ax = ps.getX(hull[i]) - ox, ay = ps.getY(hull[i]) - oy;
+			double bx = ps.getX(hull[i + 1]) - ox, by = ps.getY(hull[i + 1]) - oy;
+			sum += ax * by - bx * ay;
+		}
+		return Math.abs(sum) / 2;
+	}
+
+	//-----------------------------------------------------------
+	//  Point adapter, hull as returned by findConvexHull
+	//-----------------------------------------------------------
+	public static double getArea(ArrayList<Point> hull) {
+		PointStore ps = PointStore.fromPoints(hull);
+		int[] ids = new int[hull.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = i;
+		}
+		return getArea(ps, ids);
+	}
+
+	//------------------------------------------------------------
+	//  Checks the following points turn
+	//-----------------------------------------------------------
+	private boolean leftTurn(int a, int b, int c) { return (MathHelper.areaSign(x[a], y[a], x[b], y[b], x[c], y[c]) > 0); }
+	private boolean rightTurn(int a, int b, int c) { return (MathHelper.areaSign(x[a], y[a], x[b], y[b], x[c], y[c]) < 0); }
+	private boolean collinear(int a, int b, int c) { return (MathHelper.areaSign(x[a], y[a], x[b], y[b], x[c], y[c]) == 0); }
+
+	//------------------------------------------------------------
+	//  Checks if points in order from index left to right
+	//  are all collinear
+	//-----------------------------------------------------------
+	private boolean allCollinear(int left, int right) {
+		return run[left] >= right;
+	}
+
+	//------------------------------------------------------------
+	//  A sub-hull is described by its size and the position of
+	//  its right most point, packed in one long
+	//-----------------------------------------------------------
+	private static long subHull(int size, int right) { return ((long)size << 32) | right; }
+	private static int sizeOf(long h) { return (int)(h >>> 32); }
+	private static int rightOf(long h) { return (int)h; }
+
+	//------------------------------------------------------------
+	//  Returns the predecessor position of p in a hull of size n
+	//-----------------------------------------------------------
+	private int pred(int p, int n) {
+		int res = p - 1;
+		if (res < 0) {
+			res = n - 1;
+		}
+		return res;
+	}
+
+	//------------------------------------------------------------
+	//  Returns the successor position of p in a hull of size n
+	//-----------------------------------------------------------
+	private int succ(int p, int n) {
+		int res = p + 1;
+		if (res >= n) {
+			res = 0;
+		}
+		return res;
+	}
+
+	//------------------------------------------------------------
+	//  The left hull is hull[a..a+na-1] and the right one
+	//  hull[b..b+nb-1]. Let B = p1'th point of the left hull,
+	//  A = the point before B, C = p2'th point of the right hull
+	//  and D = the point after C
+	//-----------------------------------------------------------
+	//  This function checks if (A, B, C) forms a right turn
+	//-----------------------------------------------------------
+	private boolean goodForUpperLeft(int p1, int p2, int a, int na, int b, int nb){
+		return rightTurn(hull[a + pred(p1, na)], hull[a + p1], hull[b + p2]);
+	}
+	//-----------------------------------------------------------
+	//  And this function checks if (B, C, D) forms a right turn
+	//-----------------------------------------------------------
+	private boolean goodForUpperRight(int p1, int p2, int a, int na, int b, int nb){
+		return rightTurn(hull[a + p1], hull[b + p2], hull[b + succ(p2, nb)]);
+	}
+
+	//------------------------------------------------------------
+	//  Let B = p1'th point of the left hull, A = the point after B
+	//  and C = p2'th point of the right hull, D = the point before C
+	//-----------------------------------------------------------
+	//  This function checks if (A, B, C) forms a left turn
+	//-----------------------------------------------------------
+	private boolean goodForLowerLeft(int p1, int p2, int a, int na, int b, int nb){
+		return leftTurn(hull[a + succ(p1, na)], hull[a + p1], hull[b + p2]);
+	}
+	//-----------------------------------------------------------
+	//  And this function checks if (B, C, D) forms a left turn
+	//-----------------------------------------------------------
+	private boolean goodForLowerRight(int p1, int p2, int a, int na, int b, int nb){
+		return leftTurn(hull[a + p1], hull[b + p2], hull[b + pred(p2, nb)]);
+	}
+
+	//-----------------------------------------------------------
+	//  Merges the hulls of order[l..m] and order[m+1..r] into the
+	//  hull of order[l..r], in place
+	//-----------------------------------------------------------
+	private long merge(int l, int m, long left, long right){
+		int a = l, na = sizeOf(left);
+		int b = m + 1, nb = sizeOf(right);
+		int p1, p2;
+
+		// used to store the last permittable point when finding the tangent line
+		int limP1, limP2;
+
+		// get upper, from the right most point of the left hull and the
+		// left most point of the right hull, which every hull starts with
+		p1 = rightOf(left);
+		p2 = 0;
+		limP1 = succ(p1, na);
+		limP2 = pred(p2, nb);
+		// while it is not an appropriate Lower tangent line
+		while (!goodForUpperLeft(p1, p2, a, na, b, nb) || !goodForUpperRight(p1, p2, a, na, b, nb)){
+			// move the right pointer
+			while (!goodForUpperRight(p1, p2, a, na, b, nb)){
+				p2 = succ(p2, nb);
+				if (p2 == limP2) break;
+			}
+			// move the left pointer
+			while (!goodForUpperLeft(p1, p2, a, na, b, nb)){
+				p1 = pred(p1, na);
+				if (p1 == limP1) break;
+			}
+
+			// when the limits are touched, we need to check if the tangent line is already found
+			// if yes, quit immediately
+			if ((p1 == limP1) && (p2 == limP2)) break;
+			if ((p1 == limP1) && goodForUpperRight(p1, p2, a, na, b, nb)) break;
+			if ((p2 == limP2) && goodForUpperLeft(p1, p2, a, na, b, nb)) break;
+		}
+		int ul1 = p1;
+		int ul2 = p2;
+
+		// get lower
+		// very similar to the cobe above. It is just a reflection
+		p1 = rightOf(left);
+		p2 = 0;
+		limP1 = pred(p1, na);
+		limP2 = succ(p2, nb);
+		while (!goodForLowerLeft(p1, p2, a, na, b, nb) || !goodForLowerRight(p1, p2, a, na, b, nb)){
+			while (!goodForLowerRight(p1, p2, a, na, b, nb)){
+				p2 = pred(p2, nb);
+				if (p2 == limP2) break;
+			}
+			while (!goodForLowerLeft(p1, p2, a, na, b, nb)){
+				p1 = succ(p1, na);
+				if (p1 == limP1) break;
+			}
+			if ((p1 == limP1) && (p2 == limP2)) break;
+			if ((p1 == limP1) && goodForLowerRight(p1, p2, a, na, b, nb)) break;
+			if ((p2 == limP2) && goodForLowerLeft(p1, p2, a, na, b, nb)) break;
+		}
+		int ll1 = p1;
+		int ll2 = p2;
+
+		// now, the tangent lines have been found. The left most point of the left hull
+		// stays, so the new hull is the left hull up to ul1, the right hull from ul2
+		// around to ll2, and the left hull again from ll1 to its end
+		int size = l;
+		for (int i = 0; i <= ul1; i++) {
+			merged[size++] = hull[a + i];
+		}
+		int rightMost = size - l + (rightOf(right) - ul2 + nb) % nb;
+		for (int i = ul2; ; i = succ(i, nb)) {
+			merged[size++] = hull[b + i];
+			if (i == ll2) break;
+		}
+		if (ll1 > ul1) {
+			for (int i = ll1; i < na; i++) {
+				merged[size++] = hull[a + i];
+			}
+		}
+
+		System.arraycopy(merged, l, hull, l, size - l);
+		return subHull(size - l, rightMost);
+	}
+
+	//-----------------------------------------------------------
+	//  Finds a convex hull from order, index l to r, into hull[l..]
+	//  Recursively compute convex hull, with divide and conquer algorithm
+	//-----------------------------------------------------------
+	private long findConvexHull(int l, int r) {
+		int size = r - l + 1;
+
+		// small enough to solve
+		if (size <= 3) {
+			// simply list them
+			for (int i = l; i <= r; i++) {
+				hull[i] = order[i];
+			}
+
+			// keep them clockwise
+			if (size == 3) {
+				if (collinear(hull[l], hull[l + 1], hull[l + 2])) {
+					hull[l + 1] = hull[l + 2];
+					return subHull(2, 1);
+				} else if (!rightTurn(hull[l], hull[l + 1], hull[l + 2])) {
+					hull[l + 1] = order[l + 2];
+					hull[l + 2] = order[l + 1];
+					return subHull(3, 1);
+				}
+			}
+			return subHull(size, size - 1);
+		} else if (allCollinear(l, r)) {
+			//simply list the edges
+			hull[l] = order[l];
+			hull[l + 1] = order[r];
+			return subHull(2, 1);
+		} else {
+			int m = split(l, r);
+
+			// independently finds convex hulls
+			long leftHull = findConvexHull(l, m);
+			long rightHull = findConvexHull(m + 1, r);
+
+			// merges those found convex hulls into a big one
+			return merge(l, m, leftHull, rightHull);
+		}
+	}
+
+	//-----------------------------------------------------------
+	//  Returns m so that order[l..m] and order[m+1..r] are both
+	//  non empty and no x is on both sides, needs two different x
+	//-----------------------------------------------------------
+	private int split(int l, int r) {
+		int m = (l + r) / 2;
+
+		while ((m + 1 <= r)
+				&& (x[order[m]] == x[order[m + 1]])) {
+			m++;
+		}
+		if (m + 1 > r) {
+			m = (l + r) / 2;
+			while (x[order[m]] == x[order[m + 1]]) {
+				m--;
+			}
+		}
+		return m;
+	}
+
+	//-----------------------------------------------------------
+	//  findConvexHull(l, r) with the halves forked while the part
+	//  has more than cutoff points. The halves write to disjoint
+	//  ranges of hull and merged, so the tasks share nothing else
+	//-----------------------------------------------------------
+	private class HullTask extends RecursiveTask<Long> {
+		private static final long serialVersionUID = 1L;
+
+		private final int l, r, cutoff;
+
+		HullTask(int l, int r, int cutoff) {
+			this.l = l;
+			this.r = r;
+			this.cutoff = cutoff;
+		}
+
+		protected Long compute() {
+			if ((r - l + 1 <= cutoff) || allCollinear(l, r)) {
+				return findConvexHull(l, r);
+			}
+
+			int m = split(l, r);
+			HullTask left = new HullTask(l, m, cutoff);
+			left.fork();
+			long rightHull = new HullTask(m + 1, r, cutoff).compute();
+			long leftHull = left.join();
+
+			return merge(l, m, leftHull, rightHull);
+		}
+	}
+}
@@ -0,0 +1,24 @@
+// only counts what it receives, for sizing buffers or measuring a diagram without storing it
+public class CountingEdgeSink implements VoronoiEdgeSink{
+	private long vertices, edges, rays;
+
+	public void reset(){
+		vertices = edges = rays = 0;
+	}
+
+	public long getVertexCount(){ return vertices; }
+	public long getEdgeCount(){ return edges; }
+	public long getRayCount(){ return rays; }
+
+	public void vertex(double x, double y){
+		vertices++;
+	}
+
+	public void edge(double x1, double y1, double x2, double y2){
+		edges++;
+	}
+
+	public void ray(double x, double y, double dx, double dy){
+		rays++;
+	}
+}
@@ -0,0 +1,95 @@
+import java.util.*;
+
+// delaunay triangulation read off the dual voronoi diagram in O(N)
+// triangle t has the site indices triangles[3t..3t+2], all triangles turn the same way
+// (MathHelper.areaSign of the three sites is positive). neighbors[3t+i] is the triangle
+// sharing the edge from corner i to corner (i+1)%3 of t, or -1 on the convex hull
+public class DelaunayTriangulation{
+	private int triangleCount;
+	private int[] triangles;
+	private int[] neighbors;
+
+	public DelaunayTriangulation(){
+		triangles = new int[0];
+		neighbors = new int[0];
+		triangleCount = 0;
+	}
+
+	// rebuild from a voronoi diagram, reusing the arrays of the previous build
+	public void build(VoronoiDcel D){
+		triangleCount = D.getVertexCount();
+		if (triangles.length < 3*triangleCount){
+			triangles = new int[3*triangleCount];
+			neighbors = new int[3*triangleCount];
+		}
+
+		// every voronoi vertex is the triangle of its three sites
+		for (int t = 0; t < triangleCount; t++){
+			for (int i = 0; i < 3; i++){
+				triangles[3*t + i] = D.getVertexSite(t, i);
+				neighbors[3*t + i] = -1;
+			}
+		}
+
+		// every finite voronoi edge joins the two triangles sharing the edge of its two sites
+		for (int k = 0; k < D.getEdgeCount(); k++){
+			int h = 2*k;
+			int a = D.getOrigin(h);
+			int b = D.getDestination(h);
+			if (a < 0 || b < 0) continue;
+
+			int u = D.getSite(h);
+			int v = D.getSite(D.getTwin(h));
+			neighbors[3*a + localEdge(a, u, v)] = b;
+			neighbors[3*b + localEdge(b, u, v)] = a;
+		}
+	}
+
+	// rebuild from an incremental diagram, its live triangles are numbered in slot order
+	public void build(IncrementalVoronoi V){
+		int slots = V.getTriangleSlots();
+		int[] number = new int[slots];
+		triangleCount = 0;
+		for (int t = 0; t < slots; t++){
+			number[t] = (V.isLive(t) && !V.isGhost(t)) ? triangleCount++ : -1;
+		}
+		if (triangles.length < 3*triangleCount){
+			triangles = new int[3*triangleCount];
+			neighbors = new int[3*triangleCount];
+		}
+
+		// a ghost neighbour is the outside of the hull
+		for (int t = 0; t < slots; t++){
+			if (number[t] < 0) continue;
+			for (int i = 0; i < 3; i++){
+				triangles[3*number[t] + i] = V.getCorner(t, i);
+				neighbors[3*number[t] + i] = number[V.getNeighbor(t, i)];
+			}
+		}
+	}
+
+	// take over triangles and neighbors as built elsewhere, laid out as described above
+	public void set(int[] triangles, int[] neighbors, int triangleCount){
+		this.triangles = triangles;
+		this.neighbors = neighbors;
+		this.triangleCount = triangleCount;
+	}
+
+	// which edge of triangle t joins sites u and v
+	private int localEdge(int t, int u, int v){
+		for (int i = 0; i < 2; i++){
+			int p = triangles[3*t + i];
+			int q = triangles[3*t + i + 1];
+			if ((p == u && q == v) || (p == v && q == u)) return i;
+		}
+		return 2;
+	}
+
+	public int getTriangleCount(){ return triangleCount; }
+	public int getCorner(int t, int i){ return triangles[3*t + i]; }
+	public int getNeighbor(int t, int i){ return neighbors[3*t + i]; }
+
+	// backing arrays, only the first 3*getTriangleCount() entries are meaningful
+	public int[] getTriangles(){ return triangles; }
+	public int[] getNeighbors(){ return neighbors; }
+}
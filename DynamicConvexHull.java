@@ -0,0 +1,679 @@
+//**************************************************************
+//  DynamicConvexHull.java
+//
+//  Convex hull of a set of points that changes one point at a
+//  time, after Overmars and van Leeuwen. The hull is kept as its
+//  upper and lower chain. Each chain is a balanced tree with the
+//  points at its leaves in x order, and every internal node only
+//  stores the bridge joining the chains of its two subtrees: the
+//  chain of a node is its left child's chain up to the bridge and
+//  its right child's chain from there on. A bridge is found by
+//  walking down both subtrees together, O(log N), and an update
+//  finds the bridges again along one path, O(log^2 N).
+//
+//  The nodes also keep the number of hull points along the chain,
+//  so the size of the hull is there at any time. An update can
+//  report the hull edges it takes away and adds to a HullEdgeSink,
+//  which is how HullMetrics keeps the area and perimeter: finding
+//  the two neighbours of the point is O(log N) and each edge
+//  reported O(log N) more. Points are given by their coordinates,
+//  a point added twice has to be removed twice.
+//*************************************************************
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+public class DynamicConvexHull {
+	// the lower chain is the upper chain of the points turned half way round
+	private Chain upper, lower;
+
+	// points with their repeats, and without
+	private int size, distinct;
+
+	// scratch for the lower chain while listing the hull
+	private PointStore scratch;
+
+	public DynamicConvexHull() {
+		upper = new Chain(1);
+		lower = new Chain(-1);
+		scratch = new PointStore();
+	}
+
+	//-----------------------------------------------------------
+	//  Adds the point (x, y), O(log^2 N). The hull edges it takes
+	//  away and adds go to sink, unless that is null
+	//-----------------------------------------------------------
+	public void insert(int x, int y) {
+		insert(x, y, null);
+	}
+
+	public void insert(int x, int y, HullEdgeSink sink) {
+		if (upper.insert(x, y, sink)) {
+			lower.insert(x, y, sink);
+			distinct++;
+		}
+		size++;
+	}
+
+	//-----------------------------------------------------------
+	//  Removes one copy of the point (x, y), O(log^2 N). Returns
+	//  false if there is none. The hull changes go to sink like
+	//  insert's, only the last copy changes the hull
+	//-----------------------------------------------------------
+	public boolean remove(int x, int y) {
+		return remove(x, y, null);
+	}
+
+	public boolean remove(int x, int y, HullEdgeSink sink) {
+		int left = upper.remove(x, y, sink);
+		if (left < 0) {
+			return false;
+		}
+		if (left == 0) {
+			lower.remove(x, y, sink);
+			distinct--;
+		}
+		size--;
+		return true;
+	}
+
+	public int size() { return size; }
+	public boolean isEmpty() { return size == 0; }
+
+	//-----------------------------------------------------------
+	//  Number of points on the hull, O(1)
+	//-----------------------------------------------------------
+	public int getHullSize() {
+		if (distinct <= 1) {
+			return distinct;
+		}
+		// the two chains share their end points
+		return upper.getCount() + lower.getCount() - 2;
+	}
+
+	//-----------------------------------------------------------
+	//  Writes the hull's points to out, clockwise from the left
+	//  most one like ConvexHull, O(H log N). Returns out
+	//-----------------------------------------------------------
+	public PointStore getHull(PointStore out) {
+		out.clear();
+		if (distinct == 0) {
+			return out;
+		}
+
+		upper.list(out);
+		if (distinct > 1) {
+			scratch.clear();
+			lower.list(scratch);
+			for (int i = 1; i + 1 < scratch.size(); i++) {
+				out.add(scratch.getX(i), scratch.getY(i));
+			}
+		}
+		return out;
+	}
+
+	//***********************************************************
+	//  One chain, the upper chain of the points in the order of
+	//  dir * (x, y). For dir = -1 that order and the points turned
+	//  half way round agree, and turning keeps every orientation,
+	//  so the same code gives the lower chain
+	//***********************************************************
+	private static class Chain {
+		private static final int NIL = -1;
+
+		// half an ulp of 1, for the error bound in meetCompare
+		private static final double EPSILON = Math.ulp(1.0) / 2;
+
+		private final int dir;
+
+		// every node
+		private int[] height, parent, left, right;
+
+		// the leaf with the largest key below a node, the node itself for a leaf
+		private int[] max;
+
+		// leaves: the point and how many times it was added
+		private int[] px, py, mult;
+
+		// internal nodes: the bridge, from a leaf of the left subtree to one of the right
+		// subtree, and how many chain points come from the left child's chain up to the
+		// bridge and the right one's from it
+		private int[] bl, br;
+		private int[] countL, countR;
+
+		// nodes in use or freed, freed nodes are chained through parent
+		private int nodeCount, freeHead;
+
+		private int root;
+
+		// the point before while edges are reported
+		private int last;
+
+		Chain(int dir) {
+			this.dir = dir;
+			height = new int[16];
+			parent = new int[16];
+			left = new int[16];
+			right = new int[16];
+			max = new int[16];
+			px = new int[16];
+			py = new int[16];
+			mult = new int[16];
+			bl = new int[16];
+			br = new int[16];
+			countL = new int[16];
+			countR = new int[16];
+
+			root = NIL;
+			freeHead = NIL;
+		}
+
+		private boolean isLeaf(int t) {
+			return left[t] == NIL;
+		}
+
+		private int newNode() {
+			int t;
+			if (freeHead != NIL) {
+				t = freeHead;
+				freeHead = parent[t];
+			} else {
+				if (nodeCount == height.length) grow();
+				t = nodeCount++;
+			}
+			height[t] = 0;
+			parent[t] = NIL;
+			left[t] = right[t] = NIL;
+			max[t] = t;
+			return t;
+		}
+
+		private int newLeaf(int x, int y) {
+			int t = newNode();
+			px[t] = x;
+			py[t] = y;
+			mult[t] = 1;
+			return t;
+		}
+
+		private void freeNode(int t) {
+			parent[t] = freeHead;
+			freeHead = t;
+		}
+
+		private void grow() {
+			int cap = 2*height.length;
+			height = Arrays.copyOf(height, cap);
+			parent = Arrays.copyOf(parent, cap);
+			left = Arrays.copyOf(left, cap);
+			right = Arrays.copyOf(right, cap);
+			max = Arrays.copyOf(max, cap);
+			px = Arrays.copyOf(px, cap);
+			py = Arrays.copyOf(py, cap);
+			mult = Arrays.copyOf(mult, cap);
+			bl = Arrays.copyOf(bl, cap);
+			br = Arrays.copyOf(br, cap);
+			countL = Arrays.copyOf(countL, cap);
+			countR = Arrays.copyOf(countR, cap);
+		}
+
+		//-------------------------------------------------------
+		//  Order of the leaves and turns
+		//-------------------------------------------------------
+
+		// sign of (x, y) - leaf t in the chain's order
+		private int compare(int x, int y, int t) {
+			int c = (x != px[t]) ? Integer.compare(x, px[t]) : Integer.compare(y, py[t]);
+			return dir * c;
+		}
+
+		private int compare(int s, int t) {
+			return compare(px[s], py[s], t);
+		}
+
+		private int orient(int a, int b, int c) {
+			return MathHelper.areaSign(px[a], py[a], px[b], py[b], px[c], py[c]);
+		}
+
+		private int orient(int a, int b, int x, int y) {
+			return MathHelper.areaSign(px[a], py[a], px[b], py[b], x, y);
+		}
+
+		//-------------------------------------------------------
+		//  Updates
+		//-------------------------------------------------------
+
+		// returns false if the point was there already
+		boolean insert(int x, int y, HullEdgeSink sink) {
+			if (root == NIL) {
+				root = newLeaf(x, y);
+				return true;
+			}
+
+			int t = root;
+			while (!isLeaf(t)) {
+				t = (compare(x, y, max[left[t]]) <= 0) ? left[t] : right[t];
+			}
+
+			int c = compare(x, y, t);
+			if (c == 0) {
+				mult[t]++;
+				return false;
+			}
+
+			// the chain from a to b gives way to a, the point, b
+			int a = NIL, b = NIL;
+			boolean onChain = false;
+			if (sink != null) {
+				a = before(x, y);
+				b = after(x, y);
+				onChain = outside(a, b, x, y);
+				if (onChain) report(a, b, sink, false);
+			}
+
+			// the leaf becomes an internal node over itself and the new one
+			int p = parent[t];
+			int s = newLeaf(x, y);
+			int n = newNode();
+			if (c < 0) {
+				left[n] = s;
+				right[n] = t;
+			} else {
+				left[n] = t;
+				right[n] = s;
+			}
+			parent[n] = p;
+			parent[s] = parent[t] = n;
+			replaceChild(p, t, n);
+
+			updateToRoot(n);
+
+			if (onChain) {
+				if (a != NIL) sink.added(px[a], py[a], x, y);
+				if (b != NIL) sink.added(x, y, px[b], py[b]);
+			}
+			return true;
+		}
+
+		// returns the copies left of the point, -1 if it was not there
+		int remove(int x, int y, HullEdgeSink sink) {
+			if (root == NIL) {
+				return -1;
+			}
+
+			int t = root;
+			while (!isLeaf(t)) {
+				t = (compare(x, y, max[left[t]]) <= 0) ? left[t] : right[t];
+			}
+			if (compare(x, y, t) != 0) {
+				return -1;
+			}
+			if (--mult[t] > 0) {
+				return mult[t];
+			}
+
+			// a, the point, b give way to the chain from a to b
+			int a = NIL, b = NIL;
+			boolean onChain = false;
+			if (sink != null) {
+				a = before(x, y);
+				b = after(x, y);
+				onChain = outside(a, b, x, y);
+				if (onChain) {
+					if (a != NIL) sink.removed(px[a], py[a], x, y);
+					if (b != NIL) sink.removed(x, y, px[b], py[b]);
+				}
+			}
+
+			// the parent goes with the leaf, the sibling takes its place
+			int p = parent[t];
+			freeNode(t);
+			if (p == NIL) {
+				root = NIL;
+				return 0;
+			}
+
+			int s = (left[p] == t) ? right[p] : left[p];
+			int g = parent[p];
+			parent[s] = g;
+			replaceChild(g, p, s);
+			freeNode(p);
+
+			updateToRoot(g);
+
+			// the leaves a and b keep their nodes
+			if (onChain) report(a, b, sink, true);
+			return 0;
+		}
+
+		private void replaceChild(int p, int old, int sub) {
+			if (p == NIL) {
+				root = sub;
+			} else if (left[p] == old) {
+				left[p] = sub;
+			} else {
+				right[p] = sub;
+			}
+		}
+
+		// rebalance and find the bridges again from x up to the root
+		private void updateToRoot(int x) {
+			while (x != NIL) {
+				int par = parent[x];
+				int sub = rebalance(x);
+				replaceChild(par, x, sub);
+				x = par;
+			}
+		}
+
+		//-------------------------------------------------------
+		//  AVL rebalancing, every node whose subtree changed gets
+		//  its bridge again once its children are done
+		//-------------------------------------------------------
+		private int rebalance(int x) {
+			int hl = height[left[x]], hr = height[right[x]];
+
+			if (hl - hr >= 2) {
+				int tl = left[x];
+				if (height[left[tl]] < height[right[tl]]) {
+					left[x] = rotateWithRightChild(tl);
+				}
+				return rotateWithLeftChild(x);
+			} else if (hr - hl >= 2) {
+				int tr = right[x];
+				if (height[left[tr]] > height[right[tr]]) {
+					right[x] = rotateWithLeftChild(tr);
+				}
+				return rotateWithRightChild(x);
+			}
+
+			update(x);
+			return x;
+		}
+
+		private int rotateWithLeftChild(int k2) {
+			int k1 = left[k2];
+			left[k2] = right[k1];
+			right[k1] = k2;
+
+			parent[k1] = parent[k2];
+			parent[k2] = k1;
+			parent[left[k2]] = k2;
+
+			update(k2);
+			update(k1);
+			return k1;
+		}
+
+		private int rotateWithRightChild(int k1) {
+			int k2 = right[k1];
+			right[k1] = left[k2];
+			left[k2] = k1;
+
+			parent[k2] = parent[k1];
+			parent[k1] = k2;
+			parent[right[k1]] = k1;
+
+			update(k1);
+			update(k2);
+			return k2;
+		}
+
+		// height, largest leaf, bridge and the counts of an internal node whose children are up to date
+		private void update(int u) {
+			int l = left[u], r = right[u];
+			height[u] = Math.max(height[l], height[r]) + 1;
+			max[u] = max[r];
+
+			findBridge(u);
+			countL[u] = prefixCount(l, bl[u]);
+			countR[u] = suffixCount(r, br[u]);
+		}
+
+		//-------------------------------------------------------
+		//  The bridge of u, the upper tangent of the chains of its
+		//  children. Both chains are searched at once by going down
+		//  their trees: the chain of x inside the window lo..hi is
+		//  the part still in question, and the bridge of x is an
+		//  edge of it unless it lies outside the window. Each step
+		//  goes down in at least one of the trees
+		//-------------------------------------------------------
+		private void findBridge(int u) {
+			int x = left[u], y = right[u];
+			int xlo = NIL, xhi = NIL, ylo = NIL, yhi = NIL;
+
+			// every point of the left subtree is at most this, every one of the right after it
+			int split = max[left[u]];
+
+			while (true) {
+				x = inWindow(x, xlo, xhi);
+				y = inWindow(y, ylo, yhi);
+				boolean xPoint = isLeaf(x), yPoint = isLeaf(y);
+
+				if (xPoint && yPoint) {
+					bl[u] = x;
+					br[u] = y;
+					return;
+				}
+
+				if (xPoint) {
+					// the tangent from the point x: further right while the chain rises seen from x
+					if (orient(x, bl[y], br[y]) >= 0) {
+						ylo = br[y];
+						y = right[y];
+					} else {
+						yhi = bl[y];
+						y = left[y];
+					}
+				} else if (yPoint) {
+					if (orient(br[x], y, bl[x]) >= 0) {
+						xhi = bl[x];
+						x = left[x];
+					} else {
+						xlo = br[x];
+						x = right[x];
+					}
+				} else {
+					int a1 = bl[x], b1 = br[x], a2 = bl[y], b2 = br[y];
+
+					// an edge not steeper than the line from b1 to a2 is left of the bridge
+					// on the left, and one not flatter is right of it on the right
+					boolean goLeft = orient(b1, a2, a1) >= 0;
+					boolean goRight = orient(b1, a2, b2) >= 0;
+
+					if (goLeft || goRight) {
+						if (goLeft) {
+							xhi = a1;
+							x = left[x];
+						}
+						if (goRight) {
+							ylo = b2;
+							y = right[y];
+						}
+					} else if (dir * meetCompare(a1, b1, a2, b2, split) <= 0) {
+						// the lines of the two edges meet over the left subtree, so the right
+						// chain is below the left edge's line and that edge stays
+						xlo = b1;
+						x = right[x];
+					} else {
+						yhi = a2;
+						y = left[y];
+					}
+				}
+			}
+		}
+
+		// down from x while its bridge is outside the window lo..hi (NIL for open), the
+		// ends of the window are always points of x's chain
+		private int inWindow(int x, int lo, int hi) {
+			if ((lo != NIL) && (lo == hi)) {
+				return lo;
+			}
+			while (!isLeaf(x)) {
+				if ((hi != NIL) && (compare(hi, bl[x]) <= 0)) {
+					x = left[x];
+				} else if ((lo != NIL) && (compare(lo, br[x]) >= 0)) {
+					x = right[x];
+				} else {
+					break;
+				}
+			}
+			return x;
+		}
+
+		//-------------------------------------------------------
+		//  Compares in (x, y) order the point where the lines through
+		//  a1, b1 and through a2, b2 meet with the point l. Filtered
+		//  in double, exact when that is too close to call
+		//-------------------------------------------------------
+		private int meetCompare(int a1, int b1, int a2, int b2, int l) {
+			double dx1 = (double)px[b1] - px[a1], dy1 = (double)py[b1] - py[a1];
+			double dx2 = (double)px[b2] - px[a2], dy2 = (double)py[b2] - py[a2];
+			double ex = (double)px[a2] - px[a1], ey = (double)py[a2] - py[a1];
+
+			// the lines meet at a1 + (c / d) * (dx1, dy1)
+			double d = dx1*dy2 - dy1*dx2;
+			double dSize = Math.abs(dx1*dy2) + Math.abs(dy1*dx2);
+			double c = ex*dy2 - ey*dx2;
+			double cSize = Math.abs(ex*dy2) + Math.abs(ey*dx2);
+
+			if (Math.abs(d) > 4*EPSILON*dSize) {
+				double ax = (double)px[a1] - px[l];
+				double nx = ax*d + c*dx1;
+				if (Math.abs(nx) > 8*EPSILON*(Math.abs(ax)*dSize + Math.abs(dx1)*cSize)) {
+					return (int)(Math.signum(nx) * Math.signum(d));
+				}
+			}
+			return meetCompareExact(a1, b1, a2, b2, l);
+		}
+
+		private int meetCompareExact(int a1, int b1, int a2, int b2, int l) {
+			BigInteger dx1 = diff(px[b1], px[a1]), dy1 = diff(py[b1], py[a1]);
+			BigInteger dx2 = diff(px[b2], px[a2]), dy2 = diff(py[b2], py[a2]);
+			BigInteger ex = diff(px[a2], px[a1]), ey = diff(py[a2], py[a1]);
+
+			BigInteger d = dx1.multiply(dy2).subtract(dy1.multiply(dx2));
+			BigInteger c = ex.multiply(dy2).subtract(ey.multiply(dx2));
+
+			int sx = diff(px[a1], px[l]).multiply(d).add(c.multiply(dx1)).signum();
+			if (sx != 0) {
+				return sx * d.signum();
+			}
+			return diff(py[a1], py[l]).multiply(d).add(c.multiply(dy1)).signum() * d.signum();
+		}
+
+		private static BigInteger diff(int a, int b) {
+			return BigInteger.valueOf((long)a - b);
+		}
+
+		//-------------------------------------------------------
+		//  Points of the chain of x up to and from its point k. One
+		//  path down, O(log N)
+		//-------------------------------------------------------
+		private int prefixCount(int x, int k) {
+			if (isLeaf(x)) return 1;
+			if (compare(k, bl[x]) <= 0) return prefixCount(left[x], k);
+			return countL[x] + countR[x] - suffixCount(right[x], k) + 1;
+		}
+
+		private int suffixCount(int x, int k) {
+			if (isLeaf(x)) return 1;
+			if (compare(k, br[x]) >= 0) return suffixCount(right[x], k);
+			return countL[x] + countR[x] - prefixCount(left[x], k) + 1;
+		}
+
+		//-------------------------------------------------------
+		//  The chain points next to (x, y) once it is on the chain,
+		//  found on the chain as it is: before is the first point
+		//  whose edge to the next one does not pass above (x, y),
+		//  after the last one whose edge from the one before does
+		//  not, NIL past an end. Those are the tangents from a new
+		//  point, and the neighbours of a point of the chain. The
+		//  test holds from some edge on, one bridge tells which
+		//  side to go down, O(log N)
+		//-------------------------------------------------------
+		private int before(int x, int y) {
+			int t = root, lo = NIL, hi = NIL;
+			while (true) {
+				t = inWindow(t, lo, hi);
+				if (isLeaf(t)) break;
+				if ((compare(x, y, br[t]) <= 0) || (orient(bl[t], br[t], x, y) >= 0)) {
+					hi = bl[t];
+					t = left[t];
+				} else {
+					lo = br[t];
+					t = right[t];
+				}
+			}
+			return (compare(x, y, t) > 0) ? t : NIL;
+		}
+
+		private int after(int x, int y) {
+			int t = root, lo = NIL, hi = NIL;
+			while (true) {
+				t = inWindow(t, lo, hi);
+				if (isLeaf(t)) break;
+				if ((compare(x, y, bl[t]) >= 0) || (orient(bl[t], br[t], x, y) >= 0)) {
+					lo = br[t];
+					t = right[t];
+				} else {
+					hi = bl[t];
+					t = left[t];
+				}
+			}
+			return (compare(x, y, t) < 0) ? t : NIL;
+		}
+
+		// whether (x, y) is on the chain between its points a and b, strictly above the
+		// edge from a to b, as the chain keeps no point in the middle of an edge
+		private boolean outside(int a, int b, int x, int y) {
+			return (a == NIL) || (b == NIL) || (orient(a, b, x, y) > 0);
+		}
+
+		// the edges of the chain from its point lo to its point hi (NIL for its ends) to
+		// sink, as added or as removed
+		private void report(int lo, int hi, HullEdgeSink sink, boolean added) {
+			last = NIL;
+			report(root, lo, hi, sink, added);
+		}
+
+		private void report(int x, int lo, int hi, HullEdgeSink sink, boolean added) {
+			x = inWindow(x, lo, hi);
+			if (isLeaf(x)) {
+				if (last == NIL) {
+					// the first point, no edge yet
+				} else if (added) {
+					sink.added(px[last], py[last], px[x], py[x]);
+				} else {
+					sink.removed(px[last], py[last], px[x], py[x]);
+				}
+				last = x;
+				return;
+			}
+			report(left[x], lo, bl[x], sink, added);
+			report(right[x], br[x], hi, sink, added);
+		}
+
+		//-------------------------------------------------------
+		//  The whole chain
+		//-------------------------------------------------------
+		int getCount() {
+			if (root == NIL) return 0;
+			return isLeaf(root) ? 1 : countL[root] + countR[root];
+		}
+
+		void list(PointStore out) {
+			if (root != NIL) list(root, NIL, NIL, out);
+		}
+
+		private void list(int x, int lo, int hi, PointStore out) {
+			x = inWindow(x, lo, hi);
+			if (isLeaf(x)) {
+				out.add(px[x], py[x]);
+				return;
+			}
+			list(left[x], lo, bl[x], out);
+			list(right[x], br[x], hi, out);
+		}
+	}
+}
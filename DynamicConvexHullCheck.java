@@ -0,0 +1,176 @@
+import java.math.BigInteger;
+import java.util.*;
+
+// randomized check of DynamicConvexHull against ConvexHull, run with
+//   java DynamicConvexHullCheck [seed]
+// points are inserted and removed at random, and after every update the dynamic hull has
+// to list the same points as ConvexHull.findConvexHull of the points there are, and have
+// that many. The edges the updates report are kept as a set, which has to be the edges of
+// that hull: every edge removed was there, every edge added was not. The edges also go
+// to a HullMetrics, whose area has to be the hull's exact area and whose perimeter its
+// length around.
+// Exits with status 1 on the first mismatch
+public class DynamicConvexHullCheck implements HullEdgeSink{
+	// the edges reported so far, as "ax ay bx by"
+	private HashSet<String> edges = new HashSet<String>();
+	private HullMetrics metrics = new HullMetrics();
+	private PointStore listed = new PointStore();
+	private String name;
+	private int checks;
+
+	public static void main(String[] args){
+		long seed = (args.length > 0) ? Long.parseLong(args[0]) : 1;
+		DynamicConvexHullCheck c = new DynamicConvexHullCheck();
+		Random r = new Random(seed);
+
+		// small ranges, full of repeats and collinear points
+		for (int t = 0; t < 200; t++){
+			c.run("grid " + t, r, 300, 2 + r.nextInt(20), 0, 0);
+		}
+
+		// wide ranges, in general position
+		for (int t = 0; t < 100; t++){
+			c.run("wide " + t, r, 300, 1 << 30, 0, 0);
+		}
+
+		// small clusters next to the ends of the int range
+		for (int t = 0; t < 100; t++){
+			int ox = (t % 2 == 0) ? Integer.MAX_VALUE - 1000 : Integer.MIN_VALUE;
+			int oy = (t % 4 < 2) ? Integer.MAX_VALUE - 1000 : Integer.MIN_VALUE;
+			c.run("near 2^31 " + t, r, 300, 1000, ox, oy);
+		}
+
+		// points on one line, some off it, then all of them taken away again
+		for (int t = 0; t < 50; t++){
+			c.collinear("collinear " + t, r);
+		}
+
+		System.out.println("DynamicConvexHullCheck: " + c.checks + " checks passed");
+	}
+
+	// ops updates, about three inserts to two removes
+	private void run(String name, Random r, int ops, int range, int ox, int oy){
+		this.name = name;
+		edges.clear();
+		metrics.clear();
+		DynamicConvexHull dh = new DynamicConvexHull();
+		PointStore points = new PointStore();
+
+		for (int k = 0; k < ops; k++){
+			if ((points.size() == 0) || (r.nextInt(5) < 3)){
+				int px = ox + r.nextInt(range), py = oy + r.nextInt(range);
+				dh.insert(px, py, this);
+				points.add(px, py);
+			}else{
+				points = remove(dh, points, r.nextInt(points.size()));
+			}
+			compare("update " + k, dh, points);
+		}
+	}
+
+	private void collinear(String name, Random r){
+		this.name = name;
+		edges.clear();
+		metrics.clear();
+		DynamicConvexHull dh = new DynamicConvexHull();
+		PointStore points = new PointStore();
+
+		int dx = r.nextInt(7) - 3, dy = r.nextInt(7) - 3;
+		if ((dx == 0) && (dy == 0)) dx = 1;
+		for (int i = 0; i < 40; i++){
+			int s = r.nextInt(30) - 15;
+			int px = s*dx, py = s*dy;
+
+			// now and then a point off the line
+			if (r.nextInt(8) == 0){
+				px += dy;
+				py -= dx;
+			}
+			dh.insert(px, py, this);
+			points.add(px, py);
+			compare("insert " + i, dh, points);
+		}
+		while (points.size() > 0){
+			points = remove(dh, points, r.nextInt(points.size()));
+			compare(points.size() + " left", dh, points);
+		}
+	}
+
+	// the points without their point i, which is removed from dh
+	private PointStore remove(DynamicConvexHull dh, PointStore points, int i){
+		if (!dh.remove(points.getX(i), points.getY(i), this)){
+			fail("a point added could not be removed");
+		}
+		PointStore rest = new PointStore(points.size());
+		for (int j = 0; j < points.size(); j++){
+			if (j != i) rest.add(points.getX(j), points.getY(j));
+		}
+		return rest;
+	}
+
+	private void compare(String step, DynamicConvexHull dh, PointStore points){
+		checks++;
+		int[] h = ConvexHull.findConvexHull(points);
+
+		dh.getHull(listed);
+		boolean same = (listed.size() == h.length) && (dh.getHullSize() == h.length);
+		for (int i = 0; same && (i < h.length); i++){
+			same = (listed.getX(i) == points.getX(h[i])) && (listed.getY(i) == points.getY(h[i]));
+		}
+		if (!same){
+			fail(step + ": " + listed.size() + " points listed and " + dh.getHullSize() + " counted, the hull has " + h.length);
+		}
+
+		// a single point has no edge, two have the segment there and back
+		int n = (h.length > 1) ? h.length : 0;
+		if (edges.size() != n){
+			fail(step + ": " + edges.size() + " edges reported, the hull has " + n);
+		}
+		for (int i = 0; i < n; i++){
+			int a = h[i], b = h[(i + 1) % n];
+			if (!edges.contains(key(points.getX(a), points.getY(a), points.getX(b), points.getY(b)))){
+				fail(step + ": a hull edge was not reported");
+			}
+		}
+
+		// twice the area exactly, and the perimeter
+		BigInteger twice = BigInteger.ZERO;
+		double perimeter = 0;
+		for (int i = 0; i < n; i++){
+			int a = h[i], b = h[(i + 1) % n];
+			long ax = points.getX(a), ay = points.getY(a), bx = points.getX(b), by = points.getY(b);
+			twice = twice.add(BigInteger.valueOf(ax * by)).subtract(BigInteger.valueOf(bx * ay));
+			perimeter += Math.hypot(bx - ax, by - ay);
+		}
+		double area = twice.abs().doubleValue() / 2;
+		if (Math.abs(metrics.getArea() - area) > 1e-12 * area){
+			fail(step + ": area " + metrics.getArea() + ", the hull's is " + area);
+		}
+		if (Math.abs(metrics.getPerimeter() - perimeter) > 1e-9 * (perimeter + 1)){
+			fail(step + ": perimeter " + metrics.getPerimeter() + ", the hull's is " + perimeter);
+		}
+	}
+
+	public void removed(int ax, int ay, int bx, int by){
+		if (!edges.remove(key(ax, ay, bx, by))){
+			fail("an edge removed that was not on the hull");
+		}
+		metrics.removed(ax, ay, bx, by);
+	}
+
+	public void added(int ax, int ay, int bx, int by){
+		if (!edges.add(key(ax, ay, bx, by))){
+			fail("an edge added that was on the hull already");
+		}
+		metrics.added(ax, ay, bx, by);
+	}
+
+	private static String key(int ax, int ay, int bx, int by){
+		return ax + " " + ay + " " + bx + " " + by;
+	}
+
+	private void fail(String why){
+		System.err.println("DynamicConvexHullCheck: " + name + ": " + why);
+		System.exit(1);
+	}
+}
@@ -0,0 +1,189 @@
+import java.util.*;
+
+// event queue of Fortune's sweep
+// every site event is known before the sweep starts, so sites are sorted once into a
+// primitive index array and read in order. Circle events come and go during the sweep,
+// they are kept in a binary min-heap and cancelled by marking them in place (O(1)),
+// a cancelled event is simply skipped once it reaches the top of the heap. Events are
+// int ids into parallel arrays and are reused once they leave the heap
+public class EventQueue{
+	// site indices sorted by (y, x), siteHead is the next site to be polled
+	private int[] siteOrder;
+	private long[] siteKey;
+	private int siteCount, siteHead;
+
+	// coordinates of the sites
+	private int[] siteX, siteY;
+
+	// circle events by id, x and y of the point where the sweep line meets the event,
+	// the arc (a leaf of the beach line) that disappears there, and whether it was
+	// cancelled. Freed ids are chained through eventArc
+	private double[] eventX, eventY;
+	private int[] eventArc;
+	private boolean[] cancelled;
+	private int eventCount, freeHead;
+
+	// ids of the pending circle events, heap[0] is the smallest
+	private int[] heap;
+	private int heapSize;
+
+	public EventQueue(){
+		siteOrder = new int[0];
+		siteKey = new long[0];
+		siteCount = siteHead = 0;
+
+		eventX = new double[16];
+		eventY = new double[16];
+		eventArc = new int[16];
+		cancelled = new boolean[16];
+		eventCount = 0;
+		freeHead = -1;
+
+		heap = new int[16];
+		heapSize = 0;
+	}
+
+	public EventQueue(PointStore sites){
+		this();
+		reset(sites);
+	}
+
+	// load the site events of a new sweep, reusing the arrays of the previous one
+	public void reset(PointStore sites){
+		int n = sites.size();
+		if (siteOrder.length < n){
+			siteOrder = new int[n];
+			siteKey = new long[n];
+		}
+		for (int i = 0; i < n; i++){
+			siteOrder[i] = i;
+			siteKey[i] = sites.keyY(i);
+		}
+		PointStore.sort(siteOrder, siteKey, 0, n - 1);
+
+		// a site placed twice would split its own arc, keep the first copy only
+		siteCount = 0;
+		for (int i = 0; i < n; i++){
+			if ((siteCount == 0) || (siteKey[siteOrder[i]] != siteKey[siteOrder[siteCount - 1]])){
+				siteOrder[siteCount++] = siteOrder[i];
+			}
+		}
+		siteHead = 0;
+		siteX = sites.getXs();
+		siteY = sites.getYs();
+
+		eventCount = 0;
+		freeHead = -1;
+		heapSize = 0;
+	}
+
+	public boolean isEmpty(){
+		dropCancelled();
+		return (siteHead == siteCount) && (heapSize == 0);
+	}
+
+	// whether the next event is a site event, circle events go first on ties
+	public boolean nextIsSite(){
+		dropCancelled();
+		if (siteHead == siteCount) return false;
+		if (heapSize == 0) return true;
+
+		int c = heap[0];
+		int s = siteOrder[siteHead];
+		if (siteY[s] != eventY[c]) return siteY[s] < eventY[c];
+		return siteX[s] < eventX[c];
+	}
+
+	// returns the index of the site in the store given to reset
+	public int pollSite(){
+		return siteOrder[siteHead++];
+	}
+
+	// returns the arc removed by the next circle event
+	public int pollCircle(){
+		dropCancelled();
+		int arc = eventArc[heap[0]];
+		removeTop();
+		return arc;
+	}
+
+	// a circle event at (x, y) removing the arc, returns its id for cancel
+	public int add(double x, double y, int arc){
+		int e;
+		if (freeHead >= 0){
+			e = freeHead;
+			freeHead = eventArc[e];
+		}else{
+			if (eventCount == eventX.length){
+				eventX = Arrays.copyOf(eventX, 2*eventCount);
+				eventY = Arrays.copyOf(eventY, 2*eventCount);
+				eventArc = Arrays.copyOf(eventArc, 2*eventCount);
+				cancelled = Arrays.copyOf(cancelled, 2*eventCount);
+			}
+			e = eventCount++;
+		}
+		eventX[e] = x;
+		eventY[e] = y;
+		eventArc[e] = arc;
+		cancelled[e] = false;
+
+		if (heapSize == heap.length){
+			heap = Arrays.copyOf(heap, heapSize * 2);
+		}
+		heap[heapSize] = e;
+		siftUp(heapSize++);
+		return e;
+	}
+
+	// O(1), the event stays in the heap until it reaches the top
+	public void cancel(int e){
+		cancelled[e] = true;
+	}
+
+	private void dropCancelled(){
+		while ((heapSize > 0) && cancelled[heap[0]]){
+			removeTop();
+		}
+	}
+
+	// the top event leaves the heap and its id is free again
+	private void removeTop(){
+		int top = heap[0];
+		eventArc[top] = freeHead;
+		freeHead = top;
+
+		heapSize--;
+		heap[0] = heap[heapSize];
+		if (heapSize > 0) siftDown(0);
+	}
+
+	// events ordered by (y, x)
+	private boolean less(int a, int b){
+		if (eventY[a] != eventY[b]) return eventY[a] < eventY[b];
+		return eventX[a] < eventX[b];
+	}
+
+	private void siftUp(int i){
+		int e = heap[i];
+		while (i > 0){
+			int par = (i - 1) >> 1;
+			if (!less(e, heap[par])) break;
+			heap[i] = heap[par];
+			i = par;
+		}
+		heap[i] = e;
+	}
+
+	private void siftDown(int i){
+		int e = heap[i];
+		while (true){
+			int child = 2*i + 1;
+			if (child >= heapSize) break;
+			if ((child + 1 < heapSize) && less(heap[child + 1], heap[child])) child++;
+			if (!less(heap[child], e)) break;
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = e;
+	}
+}
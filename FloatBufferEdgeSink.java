@@ -0,0 +1,59 @@
+import java.nio.FloatBuffer;
+
+// keeps what it receives in float buffers: edges as x1, y1, x2, y2, rays as x, y, dx, dy
+// and vertices as x, y. The buffers stay in write mode, their position is the number of
+// floats written and get(i) reads them back. clear keeps the storage for the next diagram,
+// a buffer only grows when it is full
+public class FloatBufferEdgeSink implements VoronoiEdgeSink{
+	private FloatBuffer edges, rays, vertices;
+
+	public FloatBufferEdgeSink(){
+		this(256);
+	}
+
+	// room for edgeCapacity edges before the first growth
+	public FloatBufferEdgeSink(int edgeCapacity){
+		edges = FloatBuffer.allocate(4*Math.max(edgeCapacity, 1));
+		rays = FloatBuffer.allocate(64);
+		vertices = FloatBuffer.allocate(2*Math.max(edgeCapacity, 1));
+	}
+
+	public void clear(){
+		edges.clear();
+		rays.clear();
+		vertices.clear();
+	}
+
+	public int getEdgeCount(){ return edges.position() / 4; }
+	public int getRayCount(){ return rays.position() / 4; }
+	public int getVertexCount(){ return vertices.position() / 2; }
+
+	public FloatBuffer getEdges(){ return edges; }
+	public FloatBuffer getRays(){ return rays; }
+	public FloatBuffer getVertices(){ return vertices; }
+
+	public void vertex(double x, double y){
+		vertices = ensure(vertices, 2);
+		vertices.put((float)x).put((float)y);
+	}
+
+	public void edge(double x1, double y1, double x2, double y2){
+		edges = ensure(edges, 4);
+		edges.put((float)x1).put((float)y1).put((float)x2).put((float)y2);
+	}
+
+	public void ray(double x, double y, double dx, double dy){
+		rays = ensure(rays, 4);
+		rays.put((float)x).put((float)y).put((float)dx).put((float)dy);
+	}
+
+	// b with room for n more floats, moved to a buffer twice as large if needed
+	private static FloatBuffer ensure(FloatBuffer b, int n){
+		if (b.remaining() >= n) return b;
+
+		FloatBuffer grown = FloatBuffer.allocate(Math.max(2*b.capacity(), b.position() + n));
+		b.flip();
+		grown.put(b);
+		return grown;
+	}
+}
@@ -0,0 +1,10 @@
+// receives the changes of a hull edge by edge as DynamicConvexHull makes them, so whatever
+// is summed over the edges is kept up to date without listing the hull. The edges go round
+// the hull in one direction, each one from its first point to the next
+public interface HullEdgeSink{
+	// an edge from (ax, ay) to (bx, by) that is no longer on the hull
+	void removed(int ax, int ay, int bx, int by);
+
+	// an edge from (ax, ay) to (bx, by) that is new on the hull
+	void added(int ax, int ay, int bx, int by);
+}
@@ -0,0 +1,71 @@
+//**************************************************************
+//  HullMetrics.java
+//
+//  Area and perimeter of a hull, kept up to date as the hull
+//  changes instead of summed again on every read. Both are sums
+//  over the edges, so as the sink of a DynamicConvexHull it takes
+//  off the edges an update removes and adds the ones it adds,
+//  O(1) per edge. Twice the area is summed exactly in 128 bits,
+//  so it never drifts however many updates it goes through; the
+//  perimeter is a compensated double sum.
+//*************************************************************
+
+public class HullMetrics implements HullEdgeSink {
+	// twice the signed area, the sum of x(i) * y(i+1) - x(i+1) * y(i) over the edges,
+	// as the 128 bit integer high * 2^64 + low (low unsigned)
+	private long high, low;
+
+	// the perimeter, and the rounding error of the sum so far (Neumaier)
+	private double perimeter, error;
+
+	public void clear() {
+		high = low = 0;
+		perimeter = error = 0;
+	}
+
+	public void removed(int ax, int ay, int bx, int by) {
+		edge(ax, ay, bx, by, -1);
+	}
+
+	public void added(int ax, int ay, int bx, int by) {
+		edge(ax, ay, bx, by, 1);
+	}
+
+	// the area enclosed, O(1)
+	public double getArea() {
+		// low read as signed, with its top bit moved over to high
+		double twice = (high + (low >>> 63)) * 0x1p64 + low;
+		return Math.abs(twice) / 2;
+	}
+
+	// the length around, O(1). Two points have the segment there and back
+	public double getPerimeter() {
+		return perimeter + error;
+	}
+
+	private void edge(int ax, int ay, int bx, int by, int sign) {
+		// each product of two ints fits a long, their difference may not
+		add128(sign * ((long)ax * by));
+		add128(-sign * ((long)bx * ay));
+
+		double dx = (double)bx - ax, dy = (double)by - ay;
+		addPerimeter(sign * Math.sqrt(dx*dx + dy*dy));
+	}
+
+	private void add128(long v) {
+		long sum = low + v;
+		// carry out of the unsigned low word
+		high += (v >> 63) + ((Long.compareUnsigned(sum, low) < 0) ? 1 : 0);
+		low = sum;
+	}
+
+	private void addPerimeter(double v) {
+		double t = perimeter + v;
+		if (Math.abs(perimeter) >= Math.abs(v)) {
+			error += (perimeter - t) + v;
+		} else {
+			error += (v - t) + perimeter;
+		}
+		perimeter = t;
+	}
+}
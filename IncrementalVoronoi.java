@@ -0,0 +1,515 @@
+import java.util.*;
+import java.awt.geom.Line2D;
+
+// voronoi diagram that grows one site at a time
+// the dual delaunay triangulation is kept instead of the diagram itself. A new site is
+// located by walking from a triangle made near it earlier, then only the triangles whose
+// circumcircle contains it are replaced (Bowyer-Watson), the rest is left untouched.
+// Outside the convex hull every hull edge (a, b) has a ghost triangle (a, b, -1), so a
+// site beyond the hull is inserted the same way as one inside it.
+// Every triangle slot that changes is listed until clearChanged, so a copy of the diagram
+// such as VoronoiEdgeCache is patched by reading the edges of those slots only
+public class IncrementalVoronoi{
+	private static final int GHOST = -1;
+	private static final int DEAD = -2;
+
+	// the walk's starting points are kept in a grid of about this many sites per cell
+	private static final int SITES_PER_CELL = 4;
+	private static final int MAX_SIDE = 2048;
+
+	private PointStore sites;
+
+	// triangle t has corners tri[3t..3t+2] with areaSign > 0, a ghost has GHOST as
+	// one corner and a freed slot has DEAD as its first one. adj[3t+i] is the triangle
+	// across the edge from corner i to corner (i+1)%3
+	private int[] tri, adj;
+	private int slotCount;
+	private int[] free;
+	private int freeCount;
+
+	// a live real triangle to start the next walk from, -1 while the sites are all colinear
+	private int last;
+
+	// per grid cell, a triangle made when a site in that cell was inserted. The slot
+	// may have been reused since, any live real triangle is still a valid start
+	private int[] hint;
+
+	// the grid is side x side cells over [gridX, gridX + gridW) x [gridY, gridY + gridH),
+	// twice the bounding box of the gridSites sites there were when it was built. It is
+	// built again once the sites have doubled or one falls outside it
+	private int side, gridSites;
+	private long gridX, gridY, gridW, gridH;
+
+	// scratch space of one insertion
+	private int[] mark, stack;
+	private int stamp;
+	private int[] boundU, boundV, boundOut;
+	private int[] startTri;
+
+	// slots whose triangle, or a triangle across one of its edges, changed since the
+	// last clearChanged, each listed once: changedAt[t] == changedStamp while t is listed
+	private int[] changed, changedAt;
+	private int changedCount, changedStamp;
+
+	// circumcenters, recomputed when the edges are read
+	private double[] centerX, centerY;
+	private double[] center = new double[2];
+
+	// appendEdges cuts the diagram to this window
+	private ClipWindow window;
+
+	public IncrementalVoronoi(){
+		this(1280, 780);
+	}
+
+	public IncrementalVoronoi(int width, int height){
+		this.window = new ClipWindow(0, 0, width, height);
+
+		sites = new PointStore();
+		tri = new int[48];
+		adj = new int[48];
+		free = new int[16];
+		mark = new int[16];
+		stack = new int[16];
+		boundU = new int[16];
+		boundV = new int[16];
+		boundOut = new int[16];
+		startTri = new int[17];
+		changed = new int[16];
+		changedAt = new int[16];
+		changedStamp = 1;
+		centerX = new double[16];
+		centerY = new double[16];
+		hint = new int[1];
+		clear();
+	}
+
+	public void clear(){
+		sites.clear();
+		slotCount = 0;
+		freeCount = 0;
+		last = -1;
+		side = 1;
+		gridSites = 0;
+		gridX = gridY = 0;
+		gridW = gridH = 1;
+		Arrays.fill(hint, -1);
+		clearChanged();
+	}
+
+	public ClipWindow getClipWindow(){ return window; }
+	public void setClipWindow(ClipWindow window){ this.window = window; }
+
+	public int getSiteCount(){ return sites.size(); }
+	public PointStore getSites(){ return sites; }
+
+	// triangle slots, only the live ones (not dead) hold a triangle
+	public int getTriangleSlots(){ return slotCount; }
+	public boolean isLive(int t){ return tri[3*t] != DEAD; }
+	public boolean isGhost(int t){ return (tri[3*t] == GHOST) || (tri[3*t + 1] == GHOST) || (tri[3*t + 2] == GHOST); }
+	public int getCorner(int t, int i){ return tri[3*t + i]; }
+	public int getNeighbor(int t, int i){ return adj[3*t + i]; }
+
+	// false while the sites are all colinear, there are no triangles then
+	public boolean hasTriangles(){ return last >= 0; }
+
+	//-----------------------------------------------------------
+	//  The slots changed since the last clearChanged: made, freed
+	//  or given a new neighbour. The edges a slot gives to
+	//  emitEdges(t, sink) may have changed for these slots only
+	//-----------------------------------------------------------
+	public int getChangedCount(){ return changedCount; }
+	public int getChanged(int k){ return changed[k]; }
+
+	public void clearChanged(){
+		changedCount = 0;
+		changedStamp++;
+	}
+
+	private void change(int t){
+		if (changedAt[t] == changedStamp) return;
+		changedAt[t] = changedStamp;
+		changed = grow(changed, changedCount + 1);
+		changed[changedCount++] = t;
+	}
+
+	//-----------------------------------------------------------
+	//  Adds a site, returns its index in getSites(). A site that
+	//  is already there is not added again, its index is returned
+	//-----------------------------------------------------------
+	public int insert(int px, int py){
+		if (last < 0){
+			// no triangle yet, all sites so far lie on one line
+			for (int i = 0; i < sites.size(); i++){
+				if ((sites.getX(i) == px) && (sites.getY(i) == py)) return i;
+			}
+
+			int s = sites.add(px, py);
+			if ((s >= 2) && (orient(0, 1, s) != 0)){
+				start(0, 1, s);
+				for (int i = 2; i < s; i++){
+					insertAt(i, locate(sites.getX(i), sites.getY(i)));
+				}
+			}
+			return s;
+		}
+
+		int t = locate(px, py);
+		for (int i = 0; i < 3; i++){
+			int c = tri[3*t + i];
+			if ((c != GHOST) && (sites.getX(c) == px) && (sites.getY(c) == py)) return c;
+		}
+
+		int s = sites.add(px, py);
+		insertAt(s, t);
+		return s;
+	}
+
+	private int orient(int a, int b, int c){
+		return MathHelper.areaSign(sites.getX(a), sites.getY(a), sites.getX(b), sites.getY(b), sites.getX(c), sites.getY(c));
+	}
+
+	private int orient(int a, int b, int px, int py){
+		return MathHelper.areaSign(sites.getX(a), sites.getY(a), sites.getX(b), sites.getY(b), px, py);
+	}
+
+	// the first triangle (a, b, c) and the ghosts behind its three edges
+	private void start(int a, int b, int c){
+		if (orient(a, b, c) < 0){
+			int tmp = b; b = c; c = tmp;
+		}
+
+		int t = newTriangle(a, b, c);
+		int g0 = newTriangle(b, a, GHOST);
+		int g1 = newTriangle(c, b, GHOST);
+		int g2 = newTriangle(a, c, GHOST);
+
+		glue(t, 0, g0, 0);
+		glue(t, 1, g1, 0);
+		glue(t, 2, g2, 0);
+
+		// ghost (p, q) meets the ghost starting at q along the edge (q, GHOST)
+		glue(g0, 1, g2, 2);
+		glue(g1, 1, g0, 2);
+		glue(g2, 1, g1, 2);
+
+		last = t;
+	}
+
+	private void glue(int t, int i, int n, int j){
+		adj[3*t + i] = n;
+		adj[3*n + j] = t;
+	}
+
+	//-----------------------------------------------------------
+	//  Walks towards (px, py), returns a real triangle holding
+	//  it or the ghost of the hull edge it lies beyond
+	//-----------------------------------------------------------
+	private int locate(int px, int py){
+		int t = hint[cell(px, py)];
+		if ((t < 0) || !isLive(t) || isGhost(t)) t = last;
+		int from = -1;
+
+		walk:
+		while (!isGhost(t)){
+			for (int i = 0; i < 3; i++){
+				// the edge we came through needs no test, (px, py) was beyond it
+				int n = adj[3*t + i];
+				if (n == from) continue;
+
+				if (orient(tri[3*t + i], tri[3*t + (i + 1) % 3], px, py) < 0){
+					from = t;
+					t = n;
+					continue walk;
+				}
+			}
+			break;
+		}
+		return t;
+	}
+
+	private int cell(int px, int py){
+		int cx = (int)Math.min(Math.max(((long)px - gridX) * side / gridW, 0), side - 1);
+		int cy = (int)Math.min(Math.max(((long)py - gridY) * side / gridH, 0), side - 1);
+		return cy*side + cx;
+	}
+
+	private boolean inGrid(int px, int py){
+		return (px >= gridX) && (px < gridX + gridW) && (py >= gridY) && (py < gridY + gridH);
+	}
+
+	//-----------------------------------------------------------
+	//  Builds the grid again over the sites as they are now, with
+	//  every live real triangle as the hint of its first corner's
+	//  cell. O(N), and done O(log N) times while the sites double
+	//  plus a few times per axis as they spread out, the grid
+	//  doubling the box each time
+	//-----------------------------------------------------------
+	private void buildGrid(){
+		int n = sites.size();
+		long minX = Long.MAX_VALUE, minY = Long.MAX_VALUE;
+		long maxX = Long.MIN_VALUE, maxY = Long.MIN_VALUE;
+		for (int i = 0; i < n; i++){
+			minX = Math.min(minX, sites.getX(i)); maxX = Math.max(maxX, sites.getX(i));
+			minY = Math.min(minY, sites.getY(i)); maxY = Math.max(maxY, sites.getY(i));
+		}
+
+		// half the box again on every side, the sites fill the middle quarter of the cells
+		long w = maxX - minX + 1, h = maxY - minY + 1;
+		gridX = minX - w/2;
+		gridY = minY - h/2;
+		gridW = 2*w;
+		gridH = 2*h;
+		side = (int)Math.min(Math.max(2*Math.sqrt((double)n / SITES_PER_CELL), 1), MAX_SIDE);
+		gridSites = n;
+
+		if (hint.length < side*side) hint = new int[side*side];
+		Arrays.fill(hint, 0, side*side, -1);
+		for (int t = 0; t < slotCount; t++){
+			if (isLive(t) && !isGhost(t)) hint[cell(sites.getX(tri[3*t]), sites.getY(tri[3*t]))] = t;
+		}
+	}
+
+	// whether site s lies inside the circumcircle of t, for a ghost (a, b, GHOST) that
+	// is the open half-plane beyond (a, b) together with the open segment (a, b)
+	private boolean conflict(int t, int s){
+		int a = tri[3*t], b = tri[3*t + 1], c = tri[3*t + 2];
+
+		if (a == GHOST){
+			a = b; b = c;
+		}else if (b == GHOST){
+			int tmp = a; a = c; b = tmp;
+		}else if (c != GHOST){
+			return MathHelper.inCircle(sites.getX(a), sites.getY(a), sites.getX(b), sites.getY(b),
+									   sites.getX(c), sites.getY(c), sites.getX(s), sites.getY(s)) > 0;
+		}
+
+		int o = orient(a, b, s);
+		if (o != 0) return o > 0;
+
+		// on the line through (a, b), strictly between them: compare along x, or along
+		// y for an upright line. No products, the coordinates may be far apart
+		long sa, sb, ss;
+		if (sites.getX(a) != sites.getX(b)){
+			sa = sites.getX(a); sb = sites.getX(b); ss = sites.getX(s);
+		}else{
+			sa = sites.getY(a); sb = sites.getY(b); ss = sites.getY(s);
+		}
+		return (Math.min(sa, sb) < ss) && (ss < Math.max(sa, sb));
+	}
+
+	//-----------------------------------------------------------
+	//  Replaces the triangles in conflict with site s by a fan
+	//  around s, t is a triangle in conflict with it
+	//-----------------------------------------------------------
+	private void insertAt(int s, int t){
+		if (startTri.length < sites.size() + 1){
+			startTri = Arrays.copyOf(startTri, 2*sites.size() + 1);
+		}
+
+		// gather the cavity, remembering the edges on its boundary
+		stamp++;
+		int cavity = 0;
+		int bound = 0;
+		stack = grow(stack, 1);
+		stack[cavity++] = t;
+		mark[t] = stamp;
+
+		for (int k = 0; k < cavity; k++){
+			int c = stack[k];
+			for (int i = 0; i < 3; i++){
+				int n = adj[3*c + i];
+				if (mark[n] == stamp) continue;
+
+				if (conflict(n, s)){
+					stack = grow(stack, cavity + 1);
+					stack[cavity++] = n;
+					mark[n] = stamp;
+				}else{
+					if (boundU.length == bound){
+						boundU = Arrays.copyOf(boundU, 2*bound);
+						boundV = Arrays.copyOf(boundV, 2*bound);
+						boundOut = Arrays.copyOf(boundOut, 2*bound);
+					}
+					boundU[bound] = tri[3*c + i];
+					boundV[bound] = tri[3*c + (i + 1) % 3];
+					boundOut[bound] = n;
+					bound++;
+				}
+			}
+		}
+
+		for (int k = 0; k < cavity; k++){
+			release(stack[k]);
+		}
+
+		// one new triangle (u, v, s) per boundary edge (u, v)
+		for (int k = 0; k < bound; k++){
+			int u = boundU[k], v = boundV[k], n = boundOut[k];
+			int nt = newTriangle(u, v, s);
+
+			adj[3*nt] = n;
+			for (int j = 0; j < 3; j++){
+				if (tri[3*n + j] == v && tri[3*n + (j + 1) % 3] == u){
+					adj[3*n + j] = nt;
+					break;
+				}
+			}
+			change(n);
+			startTri[u + 1] = nt;
+
+			if ((u != GHOST) && (v != GHOST)) last = nt;
+		}
+
+		// consecutive triangles of the fan share an edge (v, s)
+		for (int k = 0; k < bound; k++){
+			int nt = startTri[boundU[k] + 1];
+			int next = startTri[boundV[k] + 1];
+			glue(nt, 1, next, 2);
+		}
+
+		if ((sites.size() >= 2*gridSites) || !inGrid(sites.getX(s), sites.getY(s))){
+			buildGrid();
+		}else{
+			hint[cell(sites.getX(s), sites.getY(s))] = last;
+		}
+	}
+
+	private static int[] grow(int[] arr, int size){
+		if (arr.length < size) return Arrays.copyOf(arr, 2*size);
+		return arr;
+	}
+
+	private int newTriangle(int a, int b, int c){
+		int t;
+		if (freeCount > 0){
+			t = free[--freeCount];
+		}else{
+			if (3*slotCount == tri.length){
+				tri = Arrays.copyOf(tri, 2*tri.length);
+				adj = Arrays.copyOf(adj, 2*adj.length);
+			}
+			t = slotCount++;
+			mark = grow(mark, slotCount);
+			mark[t] = 0;
+			changedAt = grow(changedAt, slotCount);
+			changedAt[t] = 0;
+		}
+
+		tri[3*t] = a;
+		tri[3*t + 1] = b;
+		tri[3*t + 2] = c;
+		change(t);
+		return t;
+	}
+
+	private void release(int t){
+		tri[3*t] = DEAD;
+		free = grow(free, freeCount + 1);
+		free[freeCount++] = t;
+		change(t);
+	}
+
+	//-----------------------------------------------------------
+	//  Appends the voronoi edges cut to the clip window, in the
+	//  same shape VoronoiGenerator.compute gives them
+	//-----------------------------------------------------------
+	public void appendEdges(final ArrayList<Line2D.Double> ret){
+		emitEdges(window.clipping(new VoronoiEdgeSink(){
+			public void vertex(double x, double y){
+			}
+
+			public void edge(double x1, double y1, double x2, double y2){
+				ret.add(new Line2D.Double(x1, y1, x2, y2));
+			}
+
+			// only reached without a window, an unbounded edge has no segment
+			public void ray(double x, double y, double dx, double dy){
+			}
+		}));
+	}
+
+	//-----------------------------------------------------------
+	//  Hands the current diagram to sink, uncut: every vertex,
+	//  every finite edge and the rays of the hull edges. Colinear
+	//  sites give only the lines between neighbours, as rays
+	//-----------------------------------------------------------
+	public void emitEdges(VoronoiEdgeSink sink){
+		int n = sites.size();
+
+		if (last < 0){
+			// colinear sites, every bisector of two neighbours is a whole line
+			if (n < 2) return;
+			int[] order = sites.sortByX();
+			for (int i = 0; i + 1 < n; i++){
+				int u = order[i], v = order[i + 1];
+				double mx = (sites.getX(u) + sites.getX(v)) / 2.0;
+				double my = (sites.getY(u) + sites.getY(v)) / 2.0;
+				double dx = (double)sites.getY(u) - sites.getY(v);
+				double dy = (double)sites.getX(v) - sites.getX(u);
+				sink.ray(mx, my, dx, dy);
+				sink.ray(mx, my, -dx, -dy);
+			}
+			return;
+		}
+
+		if (centerX.length < slotCount){
+			centerX = new double[2*slotCount];
+			centerY = new double[2*slotCount];
+		}
+		for (int k = 0; k < slotCount; k++){
+			if (isLive(k) && !isGhost(k)){
+				circumcenter(k);
+				sink.vertex(centerX[k], centerY[k]);
+			}
+		}
+
+		for (int k = 0; k < slotCount; k++){
+			if (isLive(k) && !isGhost(k)) emitOwned(k, sink);
+		}
+	}
+
+	//-----------------------------------------------------------
+	//  Hands sink the edges slot t gives to emitEdges(sink), no
+	//  vertex: nothing for a dead or ghost slot. Every edge of
+	//  the diagram comes from exactly one slot
+	//-----------------------------------------------------------
+	public void emitEdges(int t, VoronoiEdgeSink sink){
+		if (!isLive(t) || isGhost(t)) return;
+
+		if (centerX.length < slotCount){
+			centerX = new double[2*slotCount];
+			centerY = new double[2*slotCount];
+		}
+		circumcenter(t);
+		for (int i = 0; i < 3; i++){
+			int nb = adj[3*t + i];
+			if ((t < nb) && !isGhost(nb)) circumcenter(nb);
+		}
+		emitOwned(t, sink);
+	}
+
+	// the edges of the real triangle k, once its circumcenter and those of its real
+	// neighbours are in centerX and centerY
+	private void emitOwned(int k, VoronoiEdgeSink sink){
+		for (int i = 0; i < 3; i++){
+			int nb = adj[3*k + i];
+			if (!isGhost(nb)){
+				// an ordinary edge, read once from the lower slot
+				if (k < nb) sink.edge(centerX[k], centerY[k], centerX[nb], centerY[nb]);
+			}else{
+				// a hull edge (u, v), the edge goes to infinity away from the triangle
+				int u = tri[3*k + i];
+				int v = tri[3*k + (i + 1) % 3];
+				sink.ray(centerX[k], centerY[k], (double)sites.getY(v) - sites.getY(u), (double)sites.getX(u) - sites.getX(v));
+			}
+		}
+	}
+
+	private void circumcenter(int t){
+		int a = tri[3*t], b = tri[3*t + 1], c = tri[3*t + 2];
+		MathHelper.getCircleCenter(sites.getX(a), sites.getY(a), sites.getX(b), sites.getY(b), sites.getX(c), sites.getY(c), center);
+		centerX[t] = center[0];
+		centerY[t] = center[1];
+	}
+}
@@ -0,0 +1,193 @@
+import java.nio.FloatBuffer;
+import java.util.*;
+
+// randomized check of IncrementalVoronoi against a full sweep, run with
+//   java IncrementalVoronoiCheck [seed]
+// after every insertion the incremental triangulation has to be delaunay and have as many
+// triangles as VoronoiGenerator.getDelaunayTriangulation of the same sites. Where no four
+// sites are cocircular the triangulation is unique and the two must hold the same triangles.
+// A VoronoiEdgeCache updated after every insertion has to hold the same clipped segments as
+// emitting the whole diagram again, float for float.
+// Exits with status 1 on the first mismatch
+public class IncrementalVoronoiCheck{
+	private VoronoiGenerator generator = new VoronoiGenerator();
+	private DelaunayTriangulation incremental = new DelaunayTriangulation();
+	private VoronoiEdgeCache cache = new VoronoiEdgeCache();
+	private FloatBufferEdgeSink whole = new FloatBufferEdgeSink();
+	private IncrementalVoronoi cached;
+	private int checks;
+
+	public static void main(String[] args){
+		long seed = (args.length > 0) ? Long.parseLong(args[0]) : 1;
+		IncrementalVoronoiCheck c = new IncrementalVoronoiCheck();
+		Random r = new Random(seed);
+
+		// small ranges, full of repeats and cocircular sites
+		for (int t = 0; t < 200; t++){
+			int range = 2 + r.nextInt(20);
+			c.run("grid " + t, r, 60, range, 0, 0, false);
+		}
+
+		// wide ranges, in general position
+		for (int t = 0; t < 100; t++){
+			c.run("wide " + t, r, 150, 1 << 30, 0, 0, true);
+		}
+
+		// small clusters next to the ends of the int range
+		for (int t = 0; t < 100; t++){
+			int ox = (t % 2 == 0) ? Integer.MAX_VALUE - 1000 : Integer.MIN_VALUE;
+			int oy = (t % 4 < 2) ? Integer.MAX_VALUE - 1000 : Integer.MIN_VALUE;
+			c.run("near 2^31 " + t, r, 60, 1000, ox, oy, false);
+		}
+
+		// collinear sites, then one off the line
+		for (int t = 0; t < 50; t++){
+			c.collinear("collinear " + t, r);
+		}
+
+		// sites far apart on one line with one just off it
+		c.fixed("far apart", new int[] {-2000000000, 0, 0, 0, 0, 1000, 2000000000, 0});
+		c.fixed("far apart, reversed", new int[] {2000000000, 0, 0, 1000, 0, 0, -2000000000, 0});
+		c.fixed("far apart, upright", new int[] {0, -2000000000, 0, 0, 1000, 0, 0, 2000000000});
+
+		System.out.println("IncrementalVoronoiCheck: " + c.checks + " checks passed");
+	}
+
+	private void run(String name, Random r, int n, int range, int ox, int oy, boolean unique){
+		IncrementalVoronoi iv = new IncrementalVoronoi();
+		for (int i = 0; i < n; i++){
+			iv.insert(ox + r.nextInt(range), oy + r.nextInt(range));
+			compare(name + ", site " + i, iv, unique);
+		}
+	}
+
+	private void collinear(String name, Random r){
+		IncrementalVoronoi iv = new IncrementalVoronoi();
+		int dx = r.nextInt(7) - 3, dy = r.nextInt(7) - 3;
+		if ((dx == 0) && (dy == 0)) dx = 1;
+		int n = 2 + r.nextInt(40);
+		for (int i = 0; i < n; i++){
+			int k = r.nextInt(1000) - 500;
+			iv.insert(k*dx, k*dy);
+			compare(name + ", site " + i, iv, false);
+		}
+		iv.insert(-dy*7 + 1, dx*7 + 1);
+		compare(name + ", off the line", iv, false);
+	}
+
+	private void fixed(String name, int[] xy){
+		IncrementalVoronoi iv = new IncrementalVoronoi();
+		for (int i = 0; i < xy.length; i += 2){
+			iv.insert(xy[i], xy[i + 1]);
+			compare(name + ", site " + i/2, iv, false);
+		}
+	}
+
+	//-----------------------------------------------------------
+	//  Compares the incremental triangulation with a full sweep
+	//  over the same sites, numbered the same way
+	//-----------------------------------------------------------
+	private void compare(String name, IncrementalVoronoi iv, boolean unique){
+		checks++;
+		PointStore sites = iv.getSites();
+		incremental.build(iv);
+		DelaunayTriangulation full = generator.getDelaunayTriangulation(sites);
+
+		int m = incremental.getTriangleCount();
+		if (m != full.getTriangleCount()){
+			fail(name, m + " triangles, the sweep has " + full.getTriangleCount());
+		}
+
+		for (int t = 0; t < m; t++){
+			int a = incremental.getCorner(t, 0), b = incremental.getCorner(t, 1), c = incremental.getCorner(t, 2);
+			if (MathHelper.areaSign(sites.getX(a), sites.getY(a), sites.getX(b), sites.getY(b), sites.getX(c), sites.getY(c)) <= 0){
+				fail(name, "triangle " + t + " is not positively oriented");
+			}
+
+			// the corner across every edge is not inside the circle
+			for (int i = 0; i < 3; i++){
+				int n = incremental.getNeighbor(t, i);
+				if (n < 0) continue;
+				int d = across(n, incremental.getCorner(t, i), incremental.getCorner(t, (i + 1) % 3));
+				if (MathHelper.inCircle(sites.getX(a), sites.getY(a), sites.getX(b), sites.getY(b), sites.getX(c), sites.getY(c), sites.getX(d), sites.getY(d)) > 0){
+					fail(name, "triangle " + t + " is not delaunay");
+				}
+			}
+		}
+
+		if (unique){
+			HashSet<String> mine = triangles(incremental);
+			if (!mine.equals(triangles(full))){
+				fail(name, "the triangles differ from the sweep's");
+			}
+		}
+
+		compareEdges(name, iv);
+	}
+
+	//-----------------------------------------------------------
+	//  Patches the cache with the slots iv changed and compares
+	//  its segments with the whole diagram cut again
+	//-----------------------------------------------------------
+	private void compareEdges(String name, IncrementalVoronoi iv){
+		if (iv != cached){
+			cache.clear();
+			cached = iv;
+		}
+		cache.update(iv);
+
+		ArrayList<String> patched = new ArrayList<String>();
+		float[] segments = cache.getSegments();
+		for (int t = 0; t < cache.getSlotCount(); t++){
+			for (int j = 0; j < cache.getCount(t); j++){
+				int o = VoronoiEdgeCache.offset(t, j);
+				patched.add(segments[o] + " " + segments[o + 1] + " " + segments[o + 2] + " " + segments[o + 3]);
+			}
+		}
+		segments(cache.getLines(), patched);
+
+		whole.clear();
+		iv.emitEdges(iv.getClipWindow().clipping(whole));
+		ArrayList<String> all = new ArrayList<String>();
+		segments(whole.getEdges(), all);
+
+		Collections.sort(patched);
+		Collections.sort(all);
+		if (!patched.equals(all)){
+			fail(name, "the cache holds " + patched.size() + " segments, the whole diagram has " + all.size() + " or they differ");
+		}
+	}
+
+	private static void segments(FloatBuffer edges, ArrayList<String> out){
+		for (int i = 0; i < edges.position(); i += 4){
+			out.add(edges.get(i) + " " + edges.get(i + 1) + " " + edges.get(i + 2) + " " + edges.get(i + 3));
+		}
+	}
+
+	// the corner of triangle n that is not u or v
+	private int across(int n, int u, int v){
+		for (int i = 0; i < 3; i++){
+			int w = incremental.getCorner(n, i);
+			if ((w != u) && (w != v)) return w;
+		}
+		return -1;
+	}
+
+	// triangles as strings, turned to start at their smallest corner
+	private static HashSet<String> triangles(DelaunayTriangulation dt){
+		HashSet<String> set = new HashSet<String>();
+		for (int t = 0; t < dt.getTriangleCount(); t++){
+			int k = 0;
+			for (int i = 1; i < 3; i++){
+				if (dt.getCorner(t, i) < dt.getCorner(t, k)) k = i;
+			}
+			set.add(dt.getCorner(t, k) + " " + dt.getCorner(t, (k + 1) % 3) + " " + dt.getCorner(t, (k + 2) % 3));
+		}
+		return set;
+	}
+
+	private static void fail(String name, String what){
+		System.err.println("IncrementalVoronoiCheck: " + name + ": " + what);
+		System.exit(1);
+	}
+}
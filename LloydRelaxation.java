@@ -0,0 +1,232 @@
+import java.util.*;
+
+// Lloyd's relaxation towards a centroidal voronoi diagram: every step sweeps the
+// sites, cuts their cells to the clip window and moves each site to the centroid of
+// its cell. The sweep takes integer sites, so the positions are kept in double and
+// rounded for it; a site whose cell is empty stays where it is. Two sites rounding to
+// the same point would leave one of them out of the sweep for good, so a site whose new
+// point is taken keeps its old position for that step, the lowest index moving there wins.
+// The shift a step reports is the largest distance to a centroid, stopped sites included,
+// so relax does not take a step where every site was stopped for convergence.
+// The generator, the cells and every buffer are reused from step to step, so a step
+// costs one sweep plus two linear passes over the cells
+public class LloydRelaxation{
+	private VoronoiGenerator generator;
+
+	// the positions being relaxed, and their rounded copy given to the sweep
+	private double[] x, y;
+	private PointStore sites;
+	private int n;
+
+	// centroids of the last step
+	private double[] cx, cy;
+
+	// rounded centroids, their packed keys and an order sorting them, which sites move,
+	// and the sites stopped but not yet looked at
+	private int[] nx, ny, order, stopped;
+	private long[] key;
+	private boolean[] moving;
+
+	// per step: nanoseconds spent and the largest distance a site moved
+	private long[] nanos;
+	private double[] shift;
+	private int steps;
+
+	public LloydRelaxation(int width, int height){
+		this(new ClipWindow(0, 0, width, height));
+	}
+
+	public LloydRelaxation(ClipWindow window){
+		if (!window.isBounded()){
+			throw new IllegalArgumentException("relaxation needs a bounded clip window");
+		}
+		generator = new VoronoiGenerator(window);
+		sites = new PointStore();
+		x = new double[0];
+		y = new double[0];
+		cx = new double[0];
+		cy = new double[0];
+		nanos = new long[0];
+		shift = new double[0];
+		nx = new int[0];
+		ny = new int[0];
+		order = new int[0];
+		stopped = new int[0];
+		key = new long[0];
+		moving = new boolean[0];
+	}
+
+	public ClipWindow getClipWindow(){ return generator.getClipWindow(); }
+
+	// start over from a copy of start, the buffers only grow
+	public void setSites(PointStore start){
+		n = start.size();
+		if (x.length < n){
+			x = new double[n];
+			y = new double[n];
+			cx = new double[n];
+			cy = new double[n];
+			nx = new int[n];
+			ny = new int[n];
+			order = new int[n];
+			stopped = new int[n];
+			key = new long[n];
+			moving = new boolean[n];
+		}
+		for (int i = 0; i < n; i++){
+			x[i] = start.getX(i);
+			y[i] = start.getY(i);
+		}
+		round();
+		steps = 0;
+	}
+
+	//-----------------------------------------------------------
+	//  Relaxes until no site moves farther than threshold in one
+	//  step, or maxSteps steps have been made. Returns the number
+	//  of steps made
+	//-----------------------------------------------------------
+	public int relax(double threshold, int maxSteps){
+		if (nanos.length < maxSteps){
+			nanos = new long[maxSteps];
+			shift = new double[maxSteps];
+		}
+		steps = 0;
+
+		while (steps < maxSteps){
+			long start = System.nanoTime();
+			double moved = step();
+			nanos[steps] = System.nanoTime() - start;
+			shift[steps] = moved;
+			steps++;
+
+			if (moved <= threshold) break;
+		}
+		return steps;
+	}
+
+	// one sweep, cut and move, returns the largest distance to a centroid
+	private double step(){
+		VoronoiCells cells = generator.getCells(sites);
+		cells.getCentroids(cx, cy);
+
+		double moved = 0;
+		for (int i = 0; i < n; i++){
+			// NaN for an empty cell, a repeated or outside site stays
+			moving[i] = !Double.isNaN(cx[i]);
+			if (moving[i]){
+				nx[i] = (int)Math.round(cx[i]);
+				ny[i] = (int)Math.round(cy[i]);
+
+				double dx = cx[i] - x[i], dy = cy[i] - y[i];
+				moved = Math.max(moved, dx*dx + dy*dy);
+			}
+		}
+		dropCollisions();
+
+		for (int i = 0; i < n; i++){
+			if (!moving[i]) continue;
+			x[i] = cx[i];
+			y[i] = cy[i];
+		}
+		round();
+		return Math.sqrt(moved);
+	}
+
+	//-----------------------------------------------------------
+	//  Stops the moving sites whose rounded point is taken: by a
+	//  site staying there, or by a moving site of lower index.
+	//  The points are sorted once. A stopped site goes back to
+	//  its old point, so the sites moving there are stopped in
+	//  turn, found by a binary search. O(N log N) however long
+	//  the chain of stopped sites gets
+	//-----------------------------------------------------------
+	private void dropCollisions(){
+		int[] rx = sites.getXs(), ry = sites.getYs();
+		for (int i = 0; i < n; i++){
+			order[i] = i;
+			key[i] = moving[i] ? pack(nx[i], ny[i]) : pack(rx[i], ry[i]);
+		}
+		PointStore.sort(order, key, 0, n - 1);
+
+		int count = 0;
+		for (int lo = 0, hi; lo < n; lo = hi){
+			// the sites rounding to one point, and the one allowed there
+			int keep = order[lo];
+			for (hi = lo + 1; (hi < n) && (key[order[hi]] == key[order[lo]]); hi++){
+				int i = order[hi];
+				if (moving[keep] && (!moving[i] || (i < keep))) keep = i;
+			}
+			count = stopGroup(lo, hi, keep, count);
+		}
+
+		// every site stopped takes its old point back from whoever was moving there
+		while (count > 0){
+			int i = stopped[--count];
+			long k = pack(rx[i], ry[i]);
+			int lo = firstAtLeast(k);
+			int hi = lo;
+			while ((hi < n) && (key[order[hi]] == k)) hi++;
+			count = stopGroup(lo, hi, -1, count);
+		}
+	}
+
+	// stops the moving sites of order[lo..hi-1] but keep, adding them to stopped[count..]
+	private int stopGroup(int lo, int hi, int keep, int count){
+		for (int k = lo; k < hi; k++){
+			int i = order[k];
+			if (moving[i] && (i != keep)){
+				moving[i] = false;
+				stopped[count++] = i;
+			}
+		}
+		return count;
+	}
+
+	// the first position of the sorted order whose key is not below k
+	private int firstAtLeast(long k){
+		int lo = 0, hi = n;
+		while (lo < hi){
+			int mid = (lo + hi) >>> 1;
+			if (key[order[mid]] < k) lo = mid + 1;
+			else hi = mid;
+		}
+		return lo;
+	}
+
+	private static long pack(int px, int py){
+		return ((long)px << 32) | (py & 0xffffffffL);
+	}
+
+	private void round(){
+		sites.clear();
+		for (int i = 0; i < n; i++){
+			sites.add((int)Math.round(x[i]), (int)Math.round(y[i]));
+		}
+	}
+
+	// the relaxed sites as the sweep sees them, overwritten by the next step
+	public PointStore getSites(){ return sites; }
+	public double getX(int i){ return x[i]; }
+	public double getY(int i){ return y[i]; }
+
+	//-----------------------------------------------------------
+	//  What the last call of relax did, step by step
+	//-----------------------------------------------------------
+	public int getStepCount(){ return steps; }
+	public long getStepNanos(int k){ return nanos[k]; }
+	public double getStepShift(int k){ return shift[k]; }
+
+	public long getTotalNanos(){
+		long total = 0;
+		for (int k = 0; k < steps; k++){
+			total += nanos[k];
+		}
+		return total;
+	}
+
+	// the cells of the sites as they are now, needs another sweep
+	public VoronoiCells getCells(){
+		return generator.getCells(sites);
+	}
+}
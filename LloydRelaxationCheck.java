@@ -0,0 +1,79 @@
+import java.util.*;
+
+// check of LloydRelaxation on windows so small that centroids round onto each other, run with
+//   java LloydRelaxationCheck [seed]
+// after every step the rounded sites have to stay distinct, and every site has to keep a
+// cell of its own, so no site is dropped by the sweep and left behind. The shift a step
+// reports has to be the largest distance to a centroid, the sites kept back included, so
+// a step where the sites were stopped is not taken for convergence.
+// Exits with status 1 on the first failure
+public class LloydRelaxationCheck{
+	private int checks;
+
+	public static void main(String[] args){
+		long seed = (args.length > 0) ? Long.parseLong(args[0]) : 1;
+		LloydRelaxationCheck c = new LloydRelaxationCheck();
+		Random r = new Random(seed);
+
+		// crowded, about one site for every two or three lattice points of the window
+		for (int t = 0; t < 50; t++){
+			int side = 6 + r.nextInt(20);
+			c.run("crowded " + t, side, side*side / (2 + r.nextInt(2)), r);
+		}
+
+		// a few sites on a larger window, the common case
+		for (int t = 0; t < 10; t++){
+			c.run("sparse " + t, 1000, 50 + r.nextInt(500), r);
+		}
+
+		System.out.println("LloydRelaxationCheck: " + c.checks + " steps checked");
+	}
+
+	// n distinct sites relaxed one step at a time on a side x side window
+	private void run(String name, int side, int n, Random r){
+		HashSet<Long> taken = new HashSet<Long>();
+		PointStore start = new PointStore();
+		while (start.size() < n){
+			int px = r.nextInt(side + 1), py = r.nextInt(side + 1);
+			if (taken.add(((long)px << 32) | py)) start.add(px, py);
+		}
+
+		LloydRelaxation lloyd = new LloydRelaxation(side, side);
+		lloyd.setSites(start);
+		double[] cx = new double[n], cy = new double[n];
+		for (int step = 0; step < 30; step++){
+			lloyd.getCells().getCentroids(cx, cy);
+			double wanted = 0;
+			for (int i = 0; i < n; i++){
+				if (Double.isNaN(cx[i])) continue;
+				wanted = Math.max(wanted, Math.hypot(cx[i] - lloyd.getX(i), cy[i] - lloyd.getY(i)));
+			}
+
+			lloyd.relax(0, 1);
+			checks++;
+			if (Math.abs(lloyd.getStepShift(0) - wanted) > 1e-9 * (1 + wanted)){
+				fail(name, "step " + step + " reports a shift of " + lloyd.getStepShift(0) + ", not " + wanted);
+			}
+
+			PointStore sites = lloyd.getSites();
+			taken.clear();
+			for (int i = 0; i < n; i++){
+				if (!taken.add(((long)sites.getX(i) << 32) | sites.getY(i))){
+					fail(name, "site " + i + " rounds onto another one after step " + step);
+				}
+			}
+
+			VoronoiCells cells = lloyd.getCells();
+			for (int i = 0; i < n; i++){
+				if (!(cells.getArea(i) > 0)){
+					fail(name, "site " + i + " has no cell after step " + step);
+				}
+			}
+		}
+	}
+
+	private static void fail(String name, String why){
+		System.err.println("LloydRelaxationCheck: " + name + ": " + why);
+		System.exit(1);
+	}
+}
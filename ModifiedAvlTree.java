@@ -1,83 +1,154 @@
 import java.util.*;
-import java.awt.*;
-import java.awt.event.*;
-
-// node for 
-class Node{
-	int height;
-	Node parent;
-	
-	public Node(){
-		height = 0;
-	}
-}	
-
-// stores foci of currently intersecting arcs
-class InternalNode extends Node{
-	Point leftFocus, rightFocus;
-	Node left,right;
-	
-	public InternalNode(Point leftFocus, Point rightFocus, Node left, Node right){
-		this.leftFocus = leftFocus;
-		this.rightFocus = rightFocus;
-		this.left = left;
-		this.right = right;
-	}
-	
-	public boolean equals(InternalNode other){
-		return (leftFocus == other.leftFocus) && (rightFocus == other.rightFocus);
+
+// beach line of Fortune's sweep, an AVL tree whose leaves are the arcs in x order and
+// whose internal nodes are the breakpoints between two neighbouring arcs
+// nodes live in parallel arrays and are referred to by index, a leaf is a node without
+// children (left == NIL). Removed nodes go to a free list and every array is kept for
+// the next sweep, so once the arrays are large enough a sweep allocates nothing
+public class ModifiedAvlTree{
+	private static final int NIL = -1;
+
+	// every node
+	private int[] height, parent;
+
+	// internal nodes: foci (site indices) of the two intersecting arcs and the children
+	private int[] leftSite, rightSite;
+	private int[] left, right;
+
+	// the half-edge traced by a breakpoint, it borders the cell of leftSite
+	private int[] edge;
+
+	// x of a breakpoint when the sweep line was at cacheSweep, NaN if not known
+	private double[] cacheX, cacheSweep;
+
+	// leaves: focus of the arc, the predecessor and successor arc, and the circle
+	// event in which the arc disappears (NIL if none)
+	private int[] site, pred, succ, shrink;
+
+	// nodes in use or freed, freed nodes are chained through parent
+	private int nodeCount, freeHead;
+
+	private int root;
+
+	// site coordinates of the current sweep
+	private int[] sx, sy;
+
+	// scratch for circle centers
+	private double[] center = new double[2];
+
+	// gets every vertex and every finished edge as soon as the sweep makes it, or null
+	private VoronoiEdgeSink sink;
+
+	public ModifiedAvlTree(){
+		height = new int[16];
+		parent = new int[16];
+		leftSite = new int[16];
+		rightSite = new int[16];
+		left = new int[16];
+		right = new int[16];
+		edge = new int[16];
+		cacheX = new double[16];
+		cacheSweep = new double[16];
+		site = new int[16];
+		pred = new int[16];
+		succ = new int[16];
+		shrink = new int[16];
+
+		root = NIL;
+		freeHead = NIL;
 	}
-}
 
-// stores focus of an arc, plus the predecessor and successor arc's focus
-class LeafNode extends Node{
-	Point focus;
-	LeafNode pred, succ;
-	CircleEventPoint shrink;
-	
-	public LeafNode(Point focus){
-		this.focus = focus;
-		pred = succ = null;
-		shrink = null;
-	}
-	
-	public LeafNode(Point focus, LeafNode pred, LeafNode succ){
-		this.focus = focus;
-		this.pred = pred;
-		this.succ = succ;
-	}
-	
-	public boolean equals(LeafNode other){
-		return (focus == other.focus) && (pred == other.pred) && (succ == other.succ);
+	// drop every arc, ready for a new sweep over sites
+	public void reset(PointStore sites){
+		reset(sites, null);
 	}
-}
 
-public class ModifiedAvlTree{
-	private Node root;
-	private LeafNode leftMost;
-		
-	public ModifiedAvlTree(){
-		root = null;
-		leftMost = null;
+	// same, streaming the vertices and finite edges of the new sweep to sink
+	public void reset(PointStore sites, VoronoiEdgeSink sink){
+		this.sink = sink;
+		root = NIL;
+		nodeCount = 0;
+		freeHead = NIL;
+		sx = sites.getXs();
+		sy = sites.getYs();
 	}
-	
+
 	public boolean isEmpty(){
-		return (root == null);
+		return (root == NIL);
+	}
+
+	// the first arc, of site s
+	public void setRoot(int s){
+		root = newLeaf(s);
+	}
+
+	private boolean isLeaf(int t){
+		return left[t] == NIL;
+	}
+
+	private int newNode(){
+		int t;
+		if (freeHead != NIL){
+			t = freeHead;
+			freeHead = parent[t];
+		}else{
+			if (nodeCount == height.length) grow();
+			t = nodeCount++;
+		}
+		height[t] = 0;
+		parent[t] = NIL;
+		left[t] = right[t] = NIL;
+		return t;
 	}
-	
-	public void setRoot(Node r){
-		root = r;
-		root.parent = null;
-		leftMost = (LeafNode)r;
+
+	private int newLeaf(int s){
+		int t = newNode();
+		site[t] = s;
+		pred[t] = succ[t] = NIL;
+		shrink[t] = NIL;
+		return t;
 	}
-	
-	public void splitArcAndHandleQueue(Point p, TreeSet<EventPoint> Q){
-		root = splitArcAndHandleQueue(root, p, Q);
+
+	private int newBreakpoint(int ls, int rs, int l, int r){
+		int t = newNode();
+		leftSite[t] = ls;
+		rightSite[t] = rs;
+		left[t] = l;
+		right[t] = r;
+		cacheSweep[t] = Double.NaN;
+		return t;
+	}
+
+	private void freeNode(int t){
+		parent[t] = freeHead;
+		freeHead = t;
+	}
+
+	private void grow(){
+		int cap = 2*height.length;
+		height = Arrays.copyOf(height, cap);
+		parent = Arrays.copyOf(parent, cap);
+		leftSite = Arrays.copyOf(leftSite, cap);
+		rightSite = Arrays.copyOf(rightSite, cap);
+		left = Arrays.copyOf(left, cap);
+		right = Arrays.copyOf(right, cap);
+		edge = Arrays.copyOf(edge, cap);
+		cacheX = Arrays.copyOf(cacheX, cap);
+		cacheSweep = Arrays.copyOf(cacheSweep, cap);
+		site = Arrays.copyOf(site, cap);
+		pred = Arrays.copyOf(pred, cap);
+		succ = Arrays.copyOf(succ, cap);
+		shrink = Arrays.copyOf(shrink, cap);
 	}
-	
+
+	public void splitArcAndHandleQueue(int s, EventQueue Q, VoronoiDcel D){
+		root = splitArcAndHandleQueue(root, s, Q, D);
+		parent[root] = NIL;
+	}
+
 	// to the splitting arc and find the new circle event
-	public Node splitArcAndHandleQueue(Node t, Point p, TreeSet<EventPoint> Q){
-		if (t instanceof LeafNode){
+	private int splitArcAndHandleQueue(int t, int s, EventQueue Q, VoronoiDcel D){
+		if (isLeaf(t)){
 			// split here
 			// insert a tree like this
 			//   ab
@@ -85,354 +156,367 @@ public class ModifiedAvlTree{
 			//  a ba
 			//    /\
 			//   b a
-			
-			LeafNode lt = (LeafNode)t;
 
 			// remove false alarm
-			if (lt.shrink != null){
-				Q.remove(lt.shrink);
-				lt.shrink = null;
+			handleFalseAlarm(t, Q);
+
+			if (sy[site[t]] == sy[s]){
+				// only happens to the first sites, all on one horizontal line:
+				// their arcs are vertical rays, so the new arc only goes beside this one
+				return splitBeside(t, s, D);
 			}
-			
-			LeafNode pastPred = lt.pred;
-			LeafNode pastSucc = lt.succ;
-			
-			LeafNode t1 = new LeafNode(lt.focus);
-			LeafNode t2 = new LeafNode(p);
-			LeafNode t3 = new LeafNode(lt.focus);
-			
-			if (pastPred != null) pastPred.succ = t1;
-			else leftMost = t1;
-			
-			t1.pred = lt.pred;
-			t1.succ = t2;
-			
-			t2.pred = t1;
-			t2.succ = t3;
-			
-			t3.pred = t2;
-			t3.succ = lt.succ;
-			
-			if (pastSucc != null) pastSucc.pred = t3;
-			
-			Node p2 = new InternalNode(p, lt.focus, t2, t3);
-			Node p1 = new InternalNode(lt.focus, p, t1, p2);
-
-			t1.parent = p1;
-			t2.parent = p2;
-			t3.parent = p2;
-			
-			p2.parent = p1;
-			p1.parent = t.parent;
-
-			t = p1;
-			
-			t1.height = 0;
-			t2.height = 0;
-			t3.height = 0;
-			p2.height = 1;
-			p1.height = 2;
-			
+
+			int a = site[t];
+			int pastPred = pred[t];
+			int pastSucc = succ[t];
+			int up = parent[t];
+			freeNode(t);
+
+			int t1 = newLeaf(a);
+			int t2 = newLeaf(s);
+			int t3 = newLeaf(a);
+
+			if (pastPred != NIL) succ[pastPred] = t1;
+
+			pred[t1] = pastPred;
+			succ[t1] = t2;
+
+			pred[t2] = t1;
+			succ[t2] = t3;
+
+			pred[t3] = t2;
+			succ[t3] = pastSucc;
+
+			if (pastSucc != NIL) pred[pastSucc] = t3;
+
+			int p2 = newBreakpoint(s, a, t2, t3);
+			int p1 = newBreakpoint(a, s, t1, p2);
+
+			// both new breakpoints trace the same bisector, in opposite directions
+			edge[p1] = D.addEdge(a, s);
+			edge[p2] = D.getTwin(edge[p1]);
+
+			parent[t1] = p1;
+			parent[t2] = p2;
+			parent[t3] = p2;
+
+			parent[p2] = p1;
+			parent[p1] = up;
+
+			height[p2] = 1;
+			height[p1] = 2;
+
 			findCircleEvent(t2, Q);
+			return p1;
+		}
+
+		// find split arc
+		double x = getBreakpointX(t, sy[s]);
+
+		// the arrays may grow below, so the child is stored only once it is returned
+		if (sx[s] <= x){
+			int sub = splitArcAndHandleQueue(left[t], s, Q, D);
+			left[t] = sub;
+			parent[sub] = t;
 		}else{
-			InternalNode it = (InternalNode)t;
-		
-			// find split arc
-			int x = MathHelper.getArcMeetingX(it.leftFocus, it.rightFocus, p.y);
-			
-			if (p.x <= x){
-				it.left = splitArcAndHandleQueue(it.left, p, Q);
-			}else{
-				it.right = splitArcAndHandleQueue(it.right, p, Q);
-			}
-			
-			t = it;
+			int sub = splitArcAndHandleQueue(right[t], s, Q, D);
+			right[t] = sub;
+			parent[sub] = t;
 		}
-		return t;
+
+		// the split leaf grew by two levels, keep the path balanced
+		return rebalance(t);
+	}
+
+	// replace the leaf lt with two arcs side by side, lt's and the new site's, ordered by x
+	private int splitBeside(int lt, int s, VoronoiDcel D){
+		int a = newLeaf(site[lt]);
+		int b = newLeaf(s);
+		if (sx[s] < sx[site[lt]]){
+			int t = a;
+			a = b;
+			b = t;
+		}
+
+		pred[a] = pred[lt];
+		succ[a] = b;
+		pred[b] = a;
+		succ[b] = succ[lt];
+
+		if (pred[lt] != NIL) succ[pred[lt]] = a;
+		if (succ[lt] != NIL) pred[succ[lt]] = b;
+
+		int p = newBreakpoint(site[a], site[b], a, b);
+		edge[p] = D.addEdge(site[a], site[b]);
+
+		parent[a] = p;
+		parent[b] = p;
+		parent[p] = parent[lt];
+		height[p] = 1;
+
+		freeNode(lt);
+		return p;
+	}
+
+	// x of the breakpoint it for the sweep line at ly, remembered until the sweep moves
+	private double getBreakpointX(int it, double ly){
+		if (cacheSweep[it] != ly){
+			cacheX[it] = MathHelper.getBreakpointX(sx[leftSite[it]], sy[leftSite[it]], sx[rightSite[it]], sy[rightSite[it]], ly);
+			cacheSweep[it] = ly;
+		}
+		return cacheX[it];
+	}
+
+	// drop the circle event of the leaf cur, its neighbours have changed
+	public void handleFalseAlarm(int cur, EventQueue Q){
+		if (cur == NIL || shrink[cur] == NIL) return;
+
+		Q.cancel(shrink[cur]);
+		shrink[cur] = NIL;
 	}
-	
-	// check wether the leaf cur still has two neighboring leafs to create circle event
-	public void handleFalseAlarm(LeafNode cur, LeafNode toDissapear, TreeSet<EventPoint> Q){
-		if (cur == null) return;
-		
-		CircleEventPoint event = cur.shrink;
-		if (event == null) return;
-		
-		Q.remove(event);
-		cur.shrink = null;
-	}	
-	
+
 	// remove an arc (gamma) from the tree + create/erase some circle event
-	public void removeArc(LeafNode gamma, TreeSet<EventPoint> Q, HashMap<Pair, VoronoiEdge> H, ArrayList<Vertex> V) {		
-		InternalNode par = (InternalNode)gamma.parent;
-		LeafNode pred = gamma.pred;
-		LeafNode succ = gamma.succ;
-		
+	public void removeArc(int gamma, EventQueue Q, VoronoiDcel D) {
+		int par = parent[gamma];
+		int p = pred[gamma];
+		int s = succ[gamma];
+
 		// removes potential false alarm
-		handleFalseAlarm(pred, gamma, Q);
-		handleFalseAlarm(succ, gamma, Q);
-		 
-		// add this to voronoi vertex list
-		Point v = MathHelper.getCircleCenter(gamma.focus, pred.focus, succ.focus);
-		Vertex newV = new Vertex(v, gamma.focus, pred.focus, succ.focus);
-		V.add(newV);
-		
-		// add the newly formed voronoi vertex as endpoint to every bisector of three points
-		Point arrayPoint[] = new Point[3];
-		arrayPoint[0] = gamma.focus;
-		arrayPoint[1] = pred.focus;
-		arrayPoint[2] = succ.focus;
-
-		for(int i = 0; i < 3; i++)
-			for(int j = i + 1; j < 3; j++) {
-				VoronoiEdge toBeEdited;
-				Pair ij = new Pair(arrayPoint[i], arrayPoint[j]);
-				Pair ji = new Pair(arrayPoint[j], arrayPoint[i]);
-
-				if(H.get(ij) == null || H.get(ji) == null) {
-					toBeEdited = new VoronoiEdge(newV);
-					H.put(ij, toBeEdited);
-					H.put(ji, toBeEdited);
-				} else {
-					toBeEdited = H.get(ij);
-					toBeEdited.addEndPoint(newV);
-				}
-			}
-		
+		handleFalseAlarm(p, Q);
+		handleFalseAlarm(s, Q);
+
+		succ[p] = s;
+		pred[s] = p;
 
-		pred.succ = succ;
-		succ.pred = pred;
-		
 		// will deletion of gamma causes circle event? check it!
-		handleShrinkingArc(pred, Q);
-		handleShrinkingArc(succ, Q);
-		
-		// fix the tree
-		Node sibling;
-		InternalNode grandPar;
-		if (par.left == gamma){
-			// promote right sibling (succ)
-			sibling = ((InternalNode)par).right;
-			
-			// attaching them
-			grandPar = (InternalNode)par.parent;
-			if (grandPar.left == par){
-				grandPar.left = sibling;
-			}else{
-				grandPar.right = sibling;
-			}
-			sibling.parent = grandPar;
-			
-			// find LCA, modify the tuples in internal node
-			ArrayList<Node> one = new ArrayList<Node>();
-			for (Node cur = succ.parent; cur != null; cur = cur.parent){
-				one.add(cur);
-			}	
-			one = reversePath(one);
-			
-			ArrayList<Node> two = new ArrayList<Node>();
-			for (Node cur = pred.parent; cur != null; cur = cur.parent){
-				two.add(cur);
-			}
-			two = reversePath(two);
-			
-			int mismatch = 0;
-			while (one.get(mismatch) == two.get(mismatch)){ 
-				mismatch++;
-				if (mismatch >= one.size() || mismatch >= two.size()) break;
-			}
-			mismatch--;
-			
-			InternalNode lca = (InternalNode)one.get(mismatch);
-			lca.rightFocus = succ.focus;
-			
+		handleShrinkingArc(p, Q);
+		handleShrinkingArc(s, Q);
+
+		// gamma's other breakpoint is the lowest ancestor of par having gamma on its
+		// other side, found by climbing while par's side stays the same
+		boolean gammaLeft = (left[par] == gamma);
+		int x = par;
+		while ((gammaLeft && left[parent[x]] == x) || (!gammaLeft && right[parent[x]] == x)){
+			x = parent[x];
+		}
+		int lca = parent[x];
+
+		// fix the tree, promoting gamma's sibling into par's place
+		int sibling = gammaLeft ? right[par] : left[par];
+		int grandPar = parent[par];
+		if (left[grandPar] == par){
+			left[grandPar] = sibling;
 		}else{
-			// promote left sibling (pred)
-			sibling = ((InternalNode)par).left;
-			
-			// attaching them
-			grandPar = (InternalNode)par.parent;
-			if (grandPar.left == par){
-				grandPar.left = sibling;
-			}else{
-				grandPar.right = sibling;
-			}
-			sibling.parent = grandPar;
-			
-			// find LCA, modify the tuples in internal node
-			ArrayList<Node> one = new ArrayList<Node>();
-			for (Node cur = pred.parent; cur != null; cur = cur.parent){
-				one.add(cur);
-			}	
-			one = reversePath(one);
-			
-			ArrayList<Node> two = new ArrayList<Node>();
-			for (Node cur = succ.parent; cur != null; cur = cur.parent){
-				two.add(cur);
-			}
-			two = reversePath(two);
-			
-			int mismatch = 0;
-			while (one.get(mismatch) == two.get(mismatch)){ 
-				mismatch++;
-				if (mismatch >= one.size() || mismatch >= two.size()) break;
-			}
-			mismatch--;
-			
-			InternalNode lca = (InternalNode)one.get(mismatch);
-			lca.leftFocus = pred.focus;
+			right[grandPar] = sibling;
 		}
-	}	
-	
+		parent[sibling] = grandPar;
+
+		cacheSweep[lca] = Double.NaN;
+		if (gammaLeft){
+			// par was the breakpoint (gamma, succ), lca was (pred, gamma)
+			rightSite[lca] = site[s];
+			edge[lca] = addVoronoiVertex(gamma, p, s, lca, par, D);
+		}else{
+			// par was the breakpoint (pred, gamma), lca was (gamma, succ)
+			leftSite[lca] = site[p];
+			edge[lca] = addVoronoiVertex(gamma, p, s, par, lca, D);
+		}
+
+		freeNode(gamma);
+		freeNode(par);
+
+		// par is gone, so every ancestor from grandPar up may be unbalanced
+		rebalanceToRoot(grandPar);
+	}
+
+	// the breakpoints (pred, gamma) and (gamma, succ) meet at a new voronoi vertex, where
+	// the breakpoint (pred, succ) starts. returns the half-edge traced by (pred, succ)
+	private int addVoronoiVertex(int gamma, int p, int s, int leftBreak, int rightBreak, VoronoiDcel D){
+		int a = site[p], b = site[gamma], c = site[s];
+		MathHelper.getCircleCenter(sx[b], sy[b], sx[a], sy[a], sx[c], sy[c], center);
+		int v = D.addVertex(center[0], center[1], a, b, c);
+
+		// a breakpoint ending at v starts the half-edge on its left cell,
+		// a breakpoint starting at v starts the half-edge on its right cell
+		D.setOrigin(edge[leftBreak], v);
+		D.setOrigin(edge[rightBreak], v);
+		int e = D.addEdge(a, c);
+		D.setOrigin(D.getTwin(e), v);
+
+		// chain the half-edges around v, one pair for every cell meeting there
+		D.link(D.getTwin(edge[leftBreak]), edge[rightBreak]);
+		D.link(e, edge[leftBreak]);
+		D.link(D.getTwin(edge[rightBreak]), D.getTwin(e));
+
+		// the two breakpoints are done, an edge whose other end is known is final
+		if (sink != null){
+			sink.vertex(D.getVertexX(v), D.getVertexY(v));
+			emitIfFinished(edge[leftBreak], v, D);
+			emitIfFinished(edge[rightBreak], v, D);
+		}
+		return e;
+	}
+
+	// the half-edge h has just got its origin v, if its twin has one too the edge is whole
+	private void emitIfFinished(int h, int v, VoronoiDcel D){
+		int w = D.getOrigin(D.getTwin(h));
+		if (w >= 0){
+			sink.edge(D.getVertexX(w), D.getVertexY(w), D.getVertexX(v), D.getVertexY(v));
+		}
+	}
+
 	// newly added cur, test the circle event in the left/right
-	public void findCircleEvent(LeafNode cur, TreeSet<EventPoint> Q){
-		handleShrinkingArc(cur.pred, Q);
-		handleShrinkingArc(cur.succ, Q);
+	public void findCircleEvent(int cur, EventQueue Q){
+		handleShrinkingArc(pred[cur], Q);
+		handleShrinkingArc(succ[cur], Q);
 	}
-	
+
 	// check wether cur shrinks and causes circle event, register it to event queue
-	public void handleShrinkingArc(LeafNode cur, TreeSet<EventPoint> Q){
-		LeafNode prevLeaf = cur.pred;
-		LeafNode nextLeaf = cur.succ;
-		
+	public void handleShrinkingArc(int cur, EventQueue Q){
+		int prevLeaf = pred[cur];
+		int nextLeaf = succ[cur];
+
 		// must have 3 consecutive arcs
-		if (prevLeaf == null || nextLeaf == null){
+		if (prevLeaf == NIL || nextLeaf == NIL){
 			return;
 		}
-		
-		Point pre = prevLeaf.focus;
-		Point now = cur.focus;
-		Point nex = nextLeaf.focus;
-		
-		Point potentialEvent = MathHelper.getCircleCenter(pre, now, nex);
+
+		int pre = site[prevLeaf];
+		int now = site[cur];
+		int nex = site[nextLeaf];
+
 		// converge?
-		if ((potentialEvent != null) && converge(pre, now, nex)){
-			int r = MathHelper.getDistance(potentialEvent, now);
-			Point bottom = new Point(potentialEvent.x, potentialEvent.y + r);
-			CircleEventPoint event = new CircleEventPoint(bottom, prevLeaf, cur, nextLeaf);
-			Q.add(event);
-			
-			// register this circle point event to the corresponding leaf
-			cur.shrink = event;
+		if (converge(pre, now, nex) &&
+		    MathHelper.getCircleCenter(sx[pre], sy[pre], sx[now], sy[now], sx[nex], sy[nex], center)){
+			double dx = center[0] - sx[now];
+			double dy = center[1] - sy[now];
+			double r = Math.sqrt(dx*dx + dy*dy);
+
+			// register this circle event to the corresponding leaf, at the bottom of the circle
+			shrink[cur] = Q.add(center[0], center[1] + r, cur);
 		}
-	}	
-	
+	}
+
 	// determines the middle of three arcs shrinks or not
-	private boolean converge(Point a, Point b, Point c){
-		return MathHelper.areaSign(a,b,c) > 0;
-	}
-	
-	// reverse a list of node
-	private ArrayList<Node> reversePath(ArrayList<Node> a){
-		ArrayList<Node> ans = new ArrayList<Node>();
-		for (int i = a.size()-1; i >= 0; i--){
-			ans.add(a.get(i));
-		}
-		return ans;
-	}
-	
-	// print current leaves in tree, for debugging purpose
-	public void print(){
-		LeafNode a = leftMost;
-		while (a != null){
-			a = a.succ;		
-		}
-		System.out.println();
-		System.out.println();
-	}
-	
-	// get the currently available internal node
-	public ArrayList<InternalNode> getListOfInternalNode(){
-		ArrayList<InternalNode> ret = new ArrayList<InternalNode>();
-		
-		gatherInternalNode(root, ret);
-		return ret;
-	}
-	
-	// recursively adds internal node to list
-	private void gatherInternalNode(Node t, ArrayList<InternalNode> list){
-		if (t instanceof InternalNode){
-			InternalNode it = (InternalNode)t;
-			
-			list.add(it);
-			gatherInternalNode(it.left, list);
-			gatherInternalNode(it.right, list);
+	private boolean converge(int a, int b, int c){
+		return MathHelper.areaSign(sx[a], sy[a], sx[b], sy[b], sx[c], sy[c]) > 0;
+	}
+
+	// verify the AVL invariant (stored heights and balance factor) on every node, for debugging purpose
+	public boolean isBalanced(){
+		return (root == NIL) || (checkHeight(root) >= 0);
+	}
+
+	// returns the real height of t, or -1 if some node below t breaks the invariant
+	private int checkHeight(int t){
+		if (isLeaf(t)) return (height[t] == 0) ? 0 : -1;
+
+		int lh = checkHeight(left[t]);
+		int rh = checkHeight(right[t]);
+		if ((lh < 0) || (rh < 0) || (Math.abs(lh - rh) > 1)) return -1;
+		if ((parent[left[t]] != t) || (parent[right[t]] != t)) return -1;
+
+		int h = max(lh, rh) + 1;
+		return (height[t] == h) ? h : -1;
+	}
+
+	// height of the beach line, 0 for a single arc
+	public int getHeight(){
+		if (root == NIL) return -1;
+		return height[root];
+	}
+
+	// rebalance x and all of its ancestors, reattaching every rotated subtree to its parent
+	private void rebalanceToRoot(int x){
+		while (x != NIL){
+			int par = parent[x];
+			int sub = rebalance(x);
+
+			if (par == NIL){
+				root = sub;
+			}else if (left[par] == x){
+				left[par] = sub;
+			}else{
+				right[par] = sub;
+			}
+			x = par;
 		}
 	}
-	
-	// AVL's utility, rebalancing stuff (currently not being used)
-	private void updateHeight(Node x){
-		x.height = max(((InternalNode)x).left.height, ((InternalNode)x).right.height) + 1;
+
+	// AVL's utility, rebalancing stuff
+	// rotations keep the in-order sequence of arcs, and an internal node always sits
+	// between the last arc of its left subtree and the first arc of its right subtree,
+	// so the foci stored in the internal nodes stay valid
+	private void updateHeight(int x){
+		height[x] = max(height[left[x]], height[right[x]]) + 1;
 	}
-	
-	private Node rebalance(Node x){
+
+	private int rebalance(int x){
 		updateHeight(x);
-		if ((x == null) || (x.height <= 2)) return x;
-		
+		if (height[x] <= 2) return x;
+
 		//guaranteed to have height > 2
-		InternalNode t = (InternalNode)x;
-		
-		if (t.left.height - t.right.height >= 2){
-			InternalNode tl = (InternalNode)t.left;
-			if (tl.left.height > tl.right.height){
-				x = rotateWithLeftChild(x);	
+		if (height[left[x]] - height[right[x]] >= 2){
+			int tl = left[x];
+			if (height[left[tl]] >= height[right[tl]]){
+				x = rotateWithLeftChild(x);
 			}else{
 				x = doubleWithLeftChild(x);
-			}	
-		}else if (t.right.height - t.left.height >= 2){
-			InternalNode tr = (InternalNode)t.right;
-			if (tr.left.height > tr.right.height){
-				x = doubleWithRightChild(x);	
+			}
+		}else if (height[right[x]] - height[left[x]] >= 2){
+			int tr = right[x];
+			if (height[left[tr]] > height[right[tr]]){
+				x = doubleWithRightChild(x);
 			}else{
 				x = rotateWithRightChild(x);
 			}
-		}	
-		
+		}
+
 		updateHeight(x);
 		return x;
 	}
-	
-	private Node rotateWithLeftChild(Node k2) {
-		Node k1 = ((InternalNode)k2).left;
-		((InternalNode)k2).left = ((InternalNode)k1).right;
-		((InternalNode)k1).right = k2;
-		
+
+	private int rotateWithLeftChild(int k2) {
+		int k1 = left[k2];
+		left[k2] = right[k1];
+		right[k1] = k2;
+
 		updateHeight(k2);
 		updateHeight(k1);
-		
-		k1.parent = k2.parent;
-		k2.parent = k1;
-		((InternalNode)k2).left.parent = k2;
-		
+
+		parent[k1] = parent[k2];
+		parent[k2] = k1;
+		parent[left[k2]] = k2;
+
 		return k1;
-    }
+	}
+
+	private int rotateWithRightChild(int k1) {
+		int k2 = right[k1];
+		right[k1] = left[k2];
+		left[k2] = k1;
 
-    private Node rotateWithRightChild(Node k1) {
-		Node k2 = ((InternalNode)k1).right;
-		((InternalNode)k1).right = ((InternalNode)k2).left;
-		((InternalNode)k2).left = k1;
-	
 		updateHeight(k1);
 		updateHeight(k2);
-		
-		k2.parent = k1.parent;
-		k1.parent = k2;
-		((InternalNode)k1).right.parent = k1;
-	
+
+		parent[k2] = parent[k1];
+		parent[k1] = k2;
+		parent[right[k1]] = k1;
+
 		return k2;
-    }
+	}
 
-    private Node doubleWithLeftChild(Node k3) {
-		((InternalNode)k3).left = rotateWithRightChild(((InternalNode)k3).left);
+	private int doubleWithLeftChild(int k3) {
+		left[k3] = rotateWithRightChild(left[k3]);
 		return rotateWithLeftChild(k3);
-    }
+	}
 
-    private Node doubleWithRightChild(Node k1) {
-		((InternalNode)k1).right = rotateWithLeftChild(((InternalNode)k1).right);
+	private int doubleWithRightChild(int k1) {
+		right[k1] = rotateWithLeftChild(right[k1]);
 		return rotateWithRightChild(k1);
-    }
+	}
 
-    private int max(int lhs, int rhs) {
-        return lhs > rhs ? lhs : rhs;
-    }
+	private int max(int lhs, int rhs) {
+		return lhs > rhs ? lhs : rhs;
+	}
 }
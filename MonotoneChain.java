@@ -0,0 +1,63 @@
+//**************************************************************
+//  MonotoneChain.java
+//
+//  Finds the convex hull of the points in a PointStore with
+//  Andrew's monotone chain: O(N log N) for the sort by x and
+//  linear after it. The hull comes out like ConvexHull's, the
+//  indices of its points clockwise from the left most one, with
+//  no point in the middle of an edge.
+//*************************************************************
+
+import java.util.Arrays;
+
+public class MonotoneChain {
+	private MonotoneChain() {
+	}
+
+	//-----------------------------------------------------------
+	//  Returns the indices of the convex hull's points, clockwise
+	//-----------------------------------------------------------
+	public static int[] findConvexHull(PointStore ps) {
+		if (ps.size() == 0) {
+			return new int[0];
+		}
+
+		int[] order = ps.sortByX();
+		int n = ps.unique(order, order.length);
+
+		int[] out = new int[n + 1];
+		return Arrays.copyOf(out, chain(ps.getXs(), ps.getYs(), order, 0, n, out));
+	}
+
+	//-----------------------------------------------------------
+	//  Hull of sorted[lo..hi-1], distinct points sorted by x then
+	//  by y, into out[0..]. Returns its size, out needs room for
+	//  hi - lo + 1 indices
+	//-----------------------------------------------------------
+	static int chain(int[] x, int[] y, int[] sorted, int lo, int hi, int[] out) {
+		if (hi - lo <= 1) {
+			if (hi > lo) out[0] = sorted[lo];
+			return hi - lo;
+		}
+
+		// from the left most point to the right most one, keeping right turns only
+		int k = 0;
+		for (int i = lo; i < hi; i++) {
+			while ((k >= 2) && !rightTurn(x, y, out[k - 2], out[k - 1], sorted[i])) k--;
+			out[k++] = sorted[i];
+		}
+
+		// and back along the other side
+		for (int i = hi - 2, t = k + 1; i >= lo; i--) {
+			while ((k >= t) && !rightTurn(x, y, out[k - 2], out[k - 1], sorted[i])) k--;
+			out[k++] = sorted[i];
+		}
+
+		// the left most point was added again at the end
+		return k - 1;
+	}
+
+	private static boolean rightTurn(int[] x, int[] y, int a, int b, int c) {
+		return MathHelper.areaSign(x[a], y[a], x[b], y[b], x[c], y[c]) < 0;
+	}
+}
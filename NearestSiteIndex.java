@@ -0,0 +1,251 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// answers "which site's voronoi cell holds this location" without touching the diagram
+// a query starts at a site stored in a grid cell near the query and walks the delaunay
+// graph greedily, always moving to a neighbour closer to the query. On a delaunay graph
+// the walk can only stop at the nearest site. An empty cell holds the site of the filled
+// cell nearest to it, so the walk starts at most about two cell diagonals farther from the
+// query than the nearest site, and every site it visits lies within that distance. That
+// is O(1) expected steps for evenly spread sites, and on clustered ones never more than
+// the sites near the query, but not the O(log N) of a point location hierarchy: a cell
+// packed with many sites can still be walked across in O(sites in it).
+// The index is read-only once built, any number of threads may query it at once
+public class NearestSiteIndex{
+	// queries are cut into blocks of this size for the parallel batch
+	private static final int BLOCK = 4096;
+
+	private int n;
+	private int[] x, y;
+
+	// the graph in compressed rows, the neighbours of site s are
+	// neighbor[first[s]..first[s+1]-1]
+	private int[] first, neighbor;
+
+	// grid over the sites' bounding box, every cell holds a site of the graph
+	private int minX, minY, cols, rows;
+	private double cellW, cellH;
+	private int[] grid;
+
+	public NearestSiteIndex(PointStore sites){
+		this(sites, VoronoiGenerator.forCurrentThread().getDelaunayTriangulation(sites));
+	}
+
+	// dt must be the triangulation of sites, it is only read here
+	public NearestSiteIndex(PointStore sites, DelaunayTriangulation dt){
+		n = sites.size();
+		x = Arrays.copyOf(sites.getXs(), n);
+		y = Arrays.copyOf(sites.getYs(), n);
+
+		if (dt.getTriangleCount() > 0){
+			buildFromTriangles(dt);
+		}else{
+			buildFromLine(sites);
+		}
+		buildGrid();
+	}
+
+	//-----------------------------------------------------------
+	//  Every triangle edge (a, b) gives a -> b, a hull edge has
+	//  no triangle on the other side so it also gives b -> a
+	//-----------------------------------------------------------
+	private void buildFromTriangles(DelaunayTriangulation dt){
+		int m = dt.getTriangleCount();
+		int[] tri = dt.getTriangles();
+		int[] nb = dt.getNeighbors();
+
+		first = new int[n + 1];
+		for (int k = 0; k < 3*m; k++){
+			int a = tri[k];
+			first[a + 1]++;
+			if (nb[k] < 0) first[tri[k - k % 3 + (k + 1) % 3] + 1]++;
+		}
+		for (int s = 0; s < n; s++){
+			first[s + 1] += first[s];
+		}
+
+		neighbor = new int[first[n]];
+		int[] fill = Arrays.copyOf(first, n);
+		for (int k = 0; k < 3*m; k++){
+			int a = tri[k];
+			int b = tri[k - k % 3 + (k + 1) % 3];
+			neighbor[fill[a]++] = b;
+			if (nb[k] < 0) neighbor[fill[b]++] = a;
+		}
+	}
+
+	// no triangle at all, the distinct sites lie on a line and each one
+	// is joined to the sites before and after it along the line
+	private void buildFromLine(PointStore sites){
+		int[] order = sites.sortByX();
+		int m = sites.unique(order, n);
+
+		first = new int[n + 1];
+		for (int i = 0; i < m; i++){
+			first[order[i] + 1] = ((i > 0) ? 1 : 0) + ((i + 1 < m) ? 1 : 0);
+		}
+		for (int s = 0; s < n; s++){
+			first[s + 1] += first[s];
+		}
+
+		neighbor = new int[first[n]];
+		for (int i = 0; i < m; i++){
+			int at = first[order[i]];
+			if (i > 0) neighbor[at++] = order[i - 1];
+			if (i + 1 < m) neighbor[at] = order[i + 1];
+		}
+	}
+
+	private void buildGrid(){
+		if (n == 0) return;
+
+		minX = Integer.MAX_VALUE; minY = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+		for (int s = 0; s < n; s++){
+			minX = Math.min(minX, x[s]); maxX = Math.max(maxX, x[s]);
+			minY = Math.min(minY, y[s]); maxY = Math.max(maxY, y[s]);
+		}
+
+		// about one site per cell, keeping the cells roughly square
+		double w = (double)maxX - minX + 1;
+		double h = (double)maxY - minY + 1;
+		double side = Math.sqrt(w * h / n);
+		cols = (int)Math.max(1, Math.min(w / side, 4096));
+		rows = (int)Math.max(1, Math.min(h / side, 4096));
+		cellW = w / cols;
+		cellH = h / rows;
+
+		// a repeated site left out of the graph would be a dead end, only sites
+		// with a neighbour are used unless there is a single distinct site
+		grid = new int[cols * rows];
+		int[] from = new int[cols * rows];
+		Arrays.fill(grid, -1);
+		for (int s = 0; s < n; s++){
+			if (first[s + 1] > first[s] || first[n] == 0){
+				grid[cell(x[s], y[s])] = s;
+			}
+		}
+		for (int c = 0; c < grid.length; c++){
+			from[c] = (grid[c] >= 0) ? c : -1;
+		}
+
+		// every cell takes the nearest filled cell its neighbours have seen, in one pass
+		// down from the top left corner and one up from the bottom right corner
+		for (int r = 0; r < rows; r++){
+			for (int c = 0; c < cols; c++){
+				int at = r*cols + c;
+				nearer(from, at, c - 1, r);
+				nearer(from, at, c - 1, r - 1);
+				nearer(from, at, c, r - 1);
+				nearer(from, at, c + 1, r - 1);
+			}
+		}
+		for (int r = rows - 1; r >= 0; r--){
+			for (int c = cols - 1; c >= 0; c--){
+				int at = r*cols + c;
+				nearer(from, at, c + 1, r);
+				nearer(from, at, c + 1, r + 1);
+				nearer(from, at, c, r + 1);
+				nearer(from, at, c - 1, r + 1);
+			}
+		}
+		for (int c = 0; c < grid.length; c++){
+			grid[c] = grid[from[c]];
+		}
+	}
+
+	// let cell at take the filled cell seen by the cell (c, r), if that one is nearer
+	private void nearer(int[] from, int at, int c, int r){
+		if ((c < 0) || (c >= cols) || (r < 0) || (r >= rows)) return;
+		int f = from[r*cols + c];
+		if (f < 0) return;
+		if ((from[at] < 0) || (cellDistance(at, f) < cellDistance(at, from[at]))) from[at] = f;
+	}
+
+	// squared distance between two cells, in cells
+	private long cellDistance(int a, int b){
+		long dc = a % cols - b % cols;
+		long dr = a / cols - b / cols;
+		return dc*dc + dr*dr;
+	}
+
+	private int cell(double px, double py){
+		int cx = (int)Math.min(Math.max((px - minX) / cellW, 0), cols - 1);
+		int cy = (int)Math.min(Math.max((py - minY) / cellH, 0), rows - 1);
+		return cy*cols + cx;
+	}
+
+	public int size(){ return n; }
+
+	//-----------------------------------------------------------
+	//  Returns the index of the site nearest to (px, py),
+	//  -1 if there is no site
+	//-----------------------------------------------------------
+	public int nearest(double px, double py){
+		if (n == 0) return -1;
+
+		int cur = grid[cell(px, py)];
+		double best = dist2(cur, px, py);
+		while (true){
+			int next = cur;
+			for (int k = first[cur]; k < first[cur + 1]; k++){
+				double d = dist2(neighbor[k], px, py);
+				if (d < best){
+					best = d;
+					next = neighbor[k];
+				}
+			}
+			if (next == cur) return cur;
+			cur = next;
+		}
+	}
+
+	private double dist2(int s, double px, double py){
+		double dx = x[s] - px;
+		double dy = y[s] - py;
+		return dx*dx + dy*dy;
+	}
+
+	//-----------------------------------------------------------
+	//  out[i] = nearest(qx[i], qy[i]) for i < count, the queries
+	//  are spread over pool in blocks, the common pool by default
+	//-----------------------------------------------------------
+	public void nearest(double[] qx, double[] qy, int[] out, int count){
+		nearest(qx, qy, out, count, ForkJoinPool.commonPool());
+	}
+
+	public void nearest(double[] qx, double[] qy, int[] out, int count, ForkJoinPool pool){
+		if (count > 0) pool.invoke(new QueryTask(qx, qy, out, 0, count));
+	}
+
+	// the queries from..to-1, halved until a block is left. Every task writes its own
+	// entries of out and only reads the index
+	private class QueryTask extends RecursiveAction{
+		private static final long serialVersionUID = 1L;
+
+		private final double[] qx, qy;
+		private final int[] out;
+		private final int from, to;
+
+		QueryTask(double[] qx, double[] qy, int[] out, int from, int to){
+			this.qx = qx;
+			this.qy = qy;
+			this.out = out;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute(){
+			if (to - from <= BLOCK){
+				for (int i = from; i < to; i++){
+					out[i] = nearest(qx[i], qy[i]);
+				}
+				return;
+			}
+
+			int mid = (from + to) >>> 1;
+			invokeAll(new QueryTask(qx, qy, out, from, mid), new QueryTask(qx, qy, out, mid, to));
+		}
+	}
+}
@@ -0,0 +1,174 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+// check of ParallelVoronoiGenerator against one sweep over all sites, run with
+//   java ParallelVoronoiCheck [seed]
+// both diagrams need the same number of vertices and edges, on spread out, collinear and
+// two site inputs, with the sites cut into several slabs however many cores there are.
+// Inputs in general position need the same triangles as the sweep's triangulation. Where
+// four sites are cocircular either triangulation is right, so there every triangle has to
+// be locally delaunay and its neighbours have to link back to it.
+// Exits with status 1 on the first mismatch
+public class ParallelVoronoiCheck{
+	private ParallelVoronoiGenerator parallel = new ParallelVoronoiGenerator(ForkJoinPool.commonPool(), 4);
+	private VoronoiGenerator sequential = new VoronoiGenerator();
+	private int checks;
+
+	public static void main(String[] args){
+		long seed = (args.length > 0) ? Long.parseLong(args[0]) : 1;
+		ParallelVoronoiCheck c = new ParallelVoronoiCheck();
+		Random r = new Random(seed);
+
+		// two sites, and one
+		for (int t = 0; t < 50; t++){
+			PointStore ps = new PointStore();
+			ps.add(r.nextInt(2000), r.nextInt(2000));
+			c.compare("one site " + t, ps, true);
+			ps.add(r.nextInt(2000), r.nextInt(2000));
+			c.compare("two sites " + t, ps, true);
+		}
+
+		// collinear, along the axes and slanted, with repeats
+		int[][] dir = {{1, 0}, {0, 1}, {1, 1}, {3, -2}};
+		for (int[] d : dir){
+			for (int n : new int[] {3, 100, 20000}){
+				PointStore ps = new PointStore();
+				for (int i = 0; i < n; i++){
+					int k = r.nextInt(100000);
+					ps.add(d[0]*k, d[1]*k);
+				}
+				c.compare("collinear " + d[0] + "," + d[1] + " x" + n, ps, true);
+			}
+		}
+
+		// spread out, enough sites for several slabs. On the small range many sites are
+		// cocircular, on the large one hardly any and those inputs are perturbed until none is
+		for (int t = 0; t < 10; t++){
+			PointStore ps = new PointStore();
+			int n = 20000 + r.nextInt(20000);
+			boolean general = (t % 2 == 0);
+			int range = general ? 1 << 20 : 2000;
+			for (int i = 0; i < n; i++){
+				ps.add(r.nextInt(range), r.nextInt(range));
+			}
+			if (general) c.perturb(ps, r);
+			c.compare("spread " + t, ps, general);
+		}
+
+		// a lattice, cocircular everywhere
+		PointStore grid = new PointStore();
+		for (int i = 0; i < 150; i++){
+			for (int j = 0; j < 150; j++){
+				grid.add(7*i, 7*j);
+			}
+		}
+		c.compare("lattice", grid, false);
+
+		System.out.println("ParallelVoronoiCheck: " + c.checks + " checks passed");
+	}
+
+	// general tells whether no four sites are cocircular
+	private void compare(String name, PointStore sites, boolean general){
+		checks++;
+		VoronoiDcel p = parallel.sweep(sites);
+		int pv = p.getVertexCount(), pe = p.getEdgeCount();
+		VoronoiDcel s = sequential.sweep(sites);
+		int sv = s.getVertexCount(), se = s.getEdgeCount();
+
+		if ((pv != sv) || (pe != se)){
+			fail(name, pv + " vertices and " + pe + " edges, the sweep has " + sv + " and " + se);
+		}
+
+		DelaunayTriangulation dt = parallel.getDelaunayTriangulation(sites);
+		checkLinks(name, dt);
+		if (general){
+			long[] got = triangles(dt);
+			long[] expected = triangles(sequential.getDelaunayTriangulation(sites));
+			if (!Arrays.equals(got, expected)) fail(name, "the triangles differ from the sweep's");
+		}else{
+			checkDelaunay(name, dt, sites);
+		}
+	}
+
+	// every triangle once, turned to start at its smallest corner, in sorted order
+	private static long[] triangles(DelaunayTriangulation dt){
+		int m = dt.getTriangleCount();
+		long[] ret = new long[m];
+		for (int t = 0; t < m; t++){
+			int i = 0;
+			if (dt.getCorner(t, 1) < dt.getCorner(t, i)) i = 1;
+			if (dt.getCorner(t, 2) < dt.getCorner(t, i)) i = 2;
+			long a = dt.getCorner(t, i), b = dt.getCorner(t, (i + 1) % 3), c = dt.getCorner(t, (i + 2) % 3);
+			ret[t] = (a << 42) | (b << 21) | c;
+		}
+		Arrays.sort(ret);
+		return ret;
+	}
+
+	// the triangle across every edge has the same edge the other way round and t across it
+	private void checkLinks(String name, DelaunayTriangulation dt){
+		for (int t = 0; t < dt.getTriangleCount(); t++){
+			for (int i = 0; i < 3; i++){
+				int n = dt.getNeighbor(t, i);
+				if (n < 0) continue;
+				int j = shared(dt, n, dt.getCorner(t, (i + 1) % 3), dt.getCorner(t, i));
+				if ((j < 0) || (dt.getNeighbor(n, j) != t)){
+					fail(name, "triangle " + t + " and its neighbour " + n + " do not link back");
+				}
+			}
+		}
+	}
+
+	// no triangle has the far corner of a neighbour strictly inside its circumcircle
+	private void checkDelaunay(String name, DelaunayTriangulation dt, PointStore sites){
+		for (int t = 0; t < dt.getTriangleCount(); t++){
+			int a = dt.getCorner(t, 0), b = dt.getCorner(t, 1), c = dt.getCorner(t, 2);
+			for (int i = 0; i < 3; i++){
+				int n = dt.getNeighbor(t, i);
+				if (n < 0) continue;
+				int j = shared(dt, n, dt.getCorner(t, (i + 1) % 3), dt.getCorner(t, i));
+				int d = dt.getCorner(n, (j + 2) % 3);
+				if (Predicates.inCircle(sites.getX(a), sites.getY(a), sites.getX(b), sites.getY(b),
+										sites.getX(c), sites.getY(c), sites.getX(d), sites.getY(d)) > 0){
+					fail(name, "triangle " + t + " has site " + d + " inside its circumcircle");
+				}
+			}
+		}
+	}
+
+	// the edge of triangle t going from u to v, or -1
+	private static int shared(DelaunayTriangulation dt, int t, int u, int v){
+		for (int j = 0; j < 3; j++){
+			if ((dt.getCorner(t, j) == u) && (dt.getCorner(t, (j + 1) % 3) == v)) return j;
+		}
+		return -1;
+	}
+
+	// move sites by a unit until no four of them are cocircular, which takes one pass
+	// or two on the large range
+	private void perturb(PointStore sites, Random r){
+		while (true){
+			DelaunayTriangulation dt = sequential.getDelaunayTriangulation(sites);
+			boolean moved = false;
+			for (int t = 0; t < dt.getTriangleCount(); t++){
+				int a = dt.getCorner(t, 0), b = dt.getCorner(t, 1), c = dt.getCorner(t, 2);
+				for (int i = 0; i < 3; i++){
+					int n = dt.getNeighbor(t, i);
+					if (n < 0) continue;
+					int d = dt.getCorner(n, (shared(dt, n, dt.getCorner(t, (i + 1) % 3), dt.getCorner(t, i)) + 2) % 3);
+					if (Predicates.inCircle(sites.getX(a), sites.getY(a), sites.getX(b), sites.getY(b),
+											sites.getX(c), sites.getY(c), sites.getX(d), sites.getY(d)) == 0){
+						sites.getXs()[d] += 1 - 2*r.nextInt(2);
+						moved = true;
+					}
+				}
+			}
+			if (!moved) return;
+		}
+	}
+
+	private static void fail(String name, String why){
+		System.err.println("ParallelVoronoiCheck: " + name + ": " + why);
+		System.exit(1);
+	}
+}
@@ -0,0 +1,432 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Fortune's sweep spread over a fork-join pool
+// the sites are cut into slabs by x and every slab is swept on its own. A triangle of a
+// slab whose circumcircle stays within the slab's x-range holds no site of another slab,
+// so it is a triangle of the whole delaunay triangulation and is kept as it is (final).
+// The seam left between the final triangles has only sites of non-final triangles and
+// of slab hulls at its corners, those seam sites are swept once more and the triangles
+// of that sweep lying outside the final ones fill the seam. Both steps give the same
+// triangulation as one sweep over all sites (up to the order of the triangles).
+// Only the slab sweeps and the copy of their triangles run in parallel, the seam sweep
+// and the matching of the open edges are sequential, so this does not scale linearly
+// with the cores: how far it gets depends on how large the seam is against the slabs
+public class ParallelVoronoiGenerator{
+	// fewer sites per slab than this are not worth a slab of their own
+	private static final int MIN_SLAB = 4096;
+
+	// half an ulp of 1, and how flat a triangle may be before isFinal gives up on its circle
+	private static final double EPSILON = Math.ulp(1.0) / 2;
+	private static final double FLAT = 1e-6;
+
+	private ForkJoinPool pool;
+	private int slabs;
+
+	// the last result
+	private DelaunayTriangulation triangulation;
+	private VoronoiDcel D;
+
+	// sweeps the sites that have no triangle between them
+	private VoronoiGenerator sequential;
+
+	// one slab's sweep, site and neighbour indices are global, open edges have -1 as neighbour
+	private static class Slab{
+		int[] ids;
+		int finalCount;
+		int[] tri, nb;
+		int offset;
+	}
+
+	public ParallelVoronoiGenerator(){
+		this(ForkJoinPool.commonPool(), ForkJoinPool.commonPool().getParallelism());
+	}
+
+	public ParallelVoronoiGenerator(ForkJoinPool pool, int slabs){
+		this.pool = pool;
+		this.slabs = Math.max(1, slabs);
+		triangulation = new DelaunayTriangulation();
+		D = new VoronoiDcel();
+		sequential = new VoronoiGenerator();
+	}
+
+	// the voronoi diagram of the sites, laid out as VoronoiGenerator.sweep lays it out.
+	// It belongs to this generator and is overwritten by the next call
+	public VoronoiDcel sweep(PointStore sites){
+		DelaunayTriangulation dt = getDelaunayTriangulation(sites);
+
+		// sites all on one line have no triangle to read the diagram off, their cells are
+		// cut by parallel bisectors only the sweep gives
+		if (dt.getTriangleCount() == 0){
+			return sequential.sweep(sites);
+		}
+		D.build(dt, sites);
+		return D;
+	}
+
+	//-----------------------------------------------------------
+	//  The delaunay triangulation of the sites, it belongs to
+	//  this generator and is overwritten by the next call
+	//-----------------------------------------------------------
+	public DelaunayTriangulation getDelaunayTriangulation(PointStore sites){
+		int n = sites.size();
+		int count = Math.min(slabs, n / MIN_SLAB);
+		if (count < 2){
+			DelaunayTriangulation dt = VoronoiGenerator.forCurrentThread().getDelaunayTriangulation(sites);
+			int m = dt.getTriangleCount();
+			triangulation.set(Arrays.copyOf(dt.getTriangles(), 3*m), Arrays.copyOf(dt.getNeighbors(), 3*m), m);
+			return triangulation;
+		}
+
+		// split by x, all sites of one x go to the same slab
+		int[] splitX = splitPoints(sites, count);
+		count = splitX.length + 1;
+		final Slab[] slab = partition(sites, splitX, count);
+
+		// sweep the slabs, keeping their final triangles
+		boolean[] seam = new boolean[n];
+		int[] lo = new int[count], hi = new int[count];
+		for (int s = 0; s < count; s++){
+			lo[s] = (s == 0) ? Integer.MIN_VALUE : splitX[s - 1];
+			hi[s] = (s == count - 1) ? Integer.MAX_VALUE : splitX[s] - 1;
+		}
+		pool.invoke(new SweepTask(sites, slab, lo, hi, seam, 0, count));
+
+		int finalCount = 0;
+		for (int s = 0; s < count; s++){
+			slab[s].offset = finalCount;
+			finalCount += slab[s].finalCount;
+		}
+
+		// the seam, every seam triangle has its corners among the seam sites
+		PointStore seamSites = new PointStore();
+		int[] seamId = new int[n];
+		for (int i = 0; i < n; i++){
+			if (seam[i]) seamId[i] = seamSites.add(sites.getX(i), sites.getY(i));
+		}
+		int[] seamGlobal = new int[seamSites.size()];
+		for (int i = 0; i < n; i++){
+			if (seam[i]) seamGlobal[seamId[i]] = i;
+		}
+		DelaunayTriangulation seamDt = VoronoiGenerator.forCurrentThread().getDelaunayTriangulation(seamSites);
+		int[] keep = seamTriangles(sites, slab, seamDt, seam, seamGlobal, seamId);
+
+		// final triangles keep their slab neighbours, the open edges are matched afterwards
+		int total = finalCount + keep.length / 3;
+		int[] tri = new int[3*total];
+		int[] nb = new int[3*total];
+		pool.invoke(new CopyTask(slab, tri, nb, 0, count));
+		System.arraycopy(keep, 0, tri, 3*finalCount, keep.length);
+		Arrays.fill(nb, 3*finalCount, 3*total, -1);
+
+		// an open edge (u, v) meets the open edge (v, u) of the triangle across it, both
+		// get the same key and end up next to each other once the keys are sorted
+		int openCount = 0;
+		for (int k = 0; k < 3*total; k++){
+			if (nb[k] < 0) openCount++;
+		}
+		int[] open = new int[openCount];
+		long[] key = new long[3*total];
+		openCount = 0;
+		for (int k = 0; k < 3*total; k++){
+			if (nb[k] >= 0) continue;
+			open[openCount++] = k;
+			key[k] = edgeKey(tri[k], tri[k - k % 3 + (k + 1) % 3]);
+		}
+		PointStore.sort(open, key, 0, openCount - 1);
+		for (int i = 0; i + 1 < openCount; i++){
+			int k = open[i], j = open[i + 1];
+			if ((key[k] == key[j]) && (tri[k] != tri[j])){
+				nb[k] = j / 3;
+				nb[j] = k / 3;
+				i++;
+			}
+		}
+
+		for (int s = 0; s < count; s++){
+			slab[s] = null;
+		}
+		triangulation.set(tri, nb, total);
+		return triangulation;
+	}
+
+	// the same key for (u, v) and (v, u)
+	private static long edgeKey(int u, int v){
+		if (u > v){
+			int t = u;
+			u = v;
+			v = t;
+		}
+		return ((long)u << 32) | (v & 0xffffffffL);
+	}
+
+	// x values where a new slab starts, taken from a sample of the sites
+	private int[] splitPoints(PointStore sites, int count){
+		int n = sites.size();
+		int sampleSize = Math.min(n, 64*count);
+		int[] sample = new int[sampleSize];
+		for (int i = 0; i < sampleSize; i++){
+			sample[i] = sites.getX((int)((long)i * n / sampleSize));
+		}
+		Arrays.sort(sample);
+
+		int[] split = new int[count - 1];
+		int m = 0;
+		for (int s = 1; s < count; s++){
+			int x = sample[s * sampleSize / count];
+			if ((x > sample[0]) && ((m == 0) || (x > split[m - 1]))) split[m++] = x;
+		}
+		return Arrays.copyOf(split, m);
+	}
+
+	private Slab[] partition(PointStore sites, int[] splitX, int count){
+		int n = sites.size();
+		int[] which = new int[n];
+		int[] size = new int[count];
+		for (int i = 0; i < n; i++){
+			int s = Arrays.binarySearch(splitX, sites.getX(i));
+			s = (s >= 0) ? s + 1 : -s - 1;
+			which[i] = s;
+			size[s]++;
+		}
+
+		Slab[] slab = new Slab[count];
+		for (int s = 0; s < count; s++){
+			slab[s] = new Slab();
+			slab[s].ids = new int[size[s]];
+			size[s] = 0;
+		}
+		for (int i = 0; i < n; i++){
+			Slab S = slab[which[i]];
+			S.ids[size[which[i]]++] = i;
+		}
+		return slab;
+	}
+
+	//-----------------------------------------------------------
+	//  Slabs from..to-1 swept as fork-join tasks, halved until
+	//  one slab is left. The slabs share only seam, where each
+	//  one marks its own sites
+	//-----------------------------------------------------------
+	private class SweepTask extends RecursiveAction{
+		private static final long serialVersionUID = 1L;
+
+		private final PointStore sites;
+		private final Slab[] slab;
+		private final int[] lo, hi;
+		private final boolean[] seam;
+		private final int from, to;
+
+		SweepTask(PointStore sites, Slab[] slab, int[] lo, int[] hi, boolean[] seam, int from, int to){
+			this.sites = sites;
+			this.slab = slab;
+			this.lo = lo;
+			this.hi = hi;
+			this.seam = seam;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute(){
+			if (to - from == 1){
+				sweepSlab(sites, slab[from], lo[from], hi[from], seam);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new SweepTask(sites, slab, lo, hi, seam, from, mid), new SweepTask(sites, slab, lo, hi, seam, mid, to));
+		}
+	}
+
+	// the final triangles of slabs from..to-1 into their ranges of tri and nb
+	private static class CopyTask extends RecursiveAction{
+		private static final long serialVersionUID = 1L;
+
+		private final Slab[] slab;
+		private final int[] tri, nb;
+		private final int from, to;
+
+		CopyTask(Slab[] slab, int[] tri, int[] nb, int from, int to){
+			this.slab = slab;
+			this.tri = tri;
+			this.nb = nb;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute(){
+			if (to - from == 1){
+				Slab S = slab[from];
+				for (int k = 0; k < 3*S.finalCount; k++){
+					tri[3*S.offset + k] = S.tri[k];
+					nb[3*S.offset + k] = (S.nb[k] < 0) ? -1 : S.nb[k] + S.offset;
+				}
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new CopyTask(slab, tri, nb, from, mid), new CopyTask(slab, tri, nb, mid, to));
+		}
+	}
+
+	//-----------------------------------------------------------
+	//  Sweeps one slab, keeps its final triangles and marks the
+	//  corners of the others, and of the slab's hull, as seam
+	//-----------------------------------------------------------
+	private void sweepSlab(PointStore sites, Slab S, int lo, int hi, boolean[] seam){
+		PointStore local = new PointStore(S.ids.length);
+		for (int i = 0; i < S.ids.length; i++){
+			local.add(sites.getX(S.ids[i]), sites.getY(S.ids[i]));
+		}
+		DelaunayTriangulation dt = VoronoiGenerator.forCurrentThread().getDelaunayTriangulation(local);
+		int m = dt.getTriangleCount();
+
+		// colinear or tiny slab, all of it is seam
+		if (m == 0){
+			for (int i = 0; i < S.ids.length; i++){
+				seam[S.ids[i]] = true;
+			}
+			S.tri = S.nb = new int[0];
+			return;
+		}
+
+		int[] number = new int[m];
+		for (int t = 0; t < m; t++){
+			if (isFinal(local, dt, t, lo, hi)){
+				number[t] = S.finalCount++;
+			}else{
+				number[t] = -1;
+				for (int i = 0; i < 3; i++){
+					seam[S.ids[dt.getCorner(t, i)]] = true;
+				}
+			}
+		}
+
+		S.tri = new int[3*S.finalCount];
+		S.nb = new int[3*S.finalCount];
+		for (int t = 0; t < m; t++){
+			if (number[t] < 0) continue;
+			for (int i = 0; i < 3; i++){
+				int k = 3*number[t] + i;
+				int n = dt.getNeighbor(t, i);
+				S.tri[k] = S.ids[dt.getCorner(t, i)];
+				S.nb[k] = (n < 0) ? -1 : number[n];
+
+				if (n < 0){
+					seam[S.tri[k]] = true;
+					seam[S.ids[dt.getCorner(t, (i + 1) % 3)]] = true;
+				}
+			}
+		}
+	}
+
+	// whether the circumcircle of t stays within lo <= x <= hi, worked out relative to the
+	// corner a where the differences of ints are exact. Nearly flat triangles, whose centers
+	// are not known well, and circles within slack of the bounds are taken as not final,
+	// which is always safe: their triangles only go to the seam sweep
+	private static boolean isFinal(PointStore sites, DelaunayTriangulation dt, int t, int lo, int hi){
+		int a = dt.getCorner(t, 0), b = dt.getCorner(t, 1), c = dt.getCorner(t, 2);
+		int ax = sites.getX(a), ay = sites.getY(a);
+		double ux = (double)sites.getX(b) - ax, uy = (double)sites.getY(b) - ay;
+		double vx = (double)sites.getX(c) - ax, vy = (double)sites.getY(c) - ay;
+
+		// the rounded cross is off by less than 3 ulps of crossSum, so past FLAT its
+		// relative error stays below 3.4e-10
+		double cross = ux*vy - uy*vx;
+		double crossSum = Math.abs(ux*vy) + Math.abs(uy*vx);
+		if (Math.abs(cross) <= FLAT * crossSum) return false;
+
+		double u2 = ux*ux + uy*uy, v2 = vx*vx + vy*vy;
+		double det = 2*cross;
+		double ox = (vy*u2 - uy*v2) / det;
+		double oy = (ux*v2 - vx*u2) / det;
+		double r = Math.sqrt(ox*ox + oy*oy);
+
+		// the numerators lose at most 4 ulps of their terms, the division adds the error of
+		// cross, and the radius and the sums below a few ulps of what they add up
+		double errX = 4*EPSILON * (Math.abs(vy*u2) + Math.abs(uy*v2)) / Math.abs(det) + 2*FLAT*Math.abs(ox);
+		double errY = 4*EPSILON * (Math.abs(ux*v2) + Math.abs(vx*u2)) / Math.abs(det) + 2*FLAT*Math.abs(oy);
+		double left = (double)((long)ax - lo), right = (double)((long)hi - ax);
+		double slack = 2*(errX + errY) + 4*EPSILON*(Math.abs(left) + Math.abs(right) + Math.abs(ox) + r);
+
+		// sites of other slabs are at least one unit away from the slab's x-range
+		return (left + ox - r > slack) && (right - ox - r > slack);
+	}
+
+	//-----------------------------------------------------------
+	//  The triangles of the seam sweep outside the final triangles,
+	//  as global corner triples. A seam triangle and the final
+	//  ones never overlap partly, so it is enough to look at its
+	//  first corner: it is covered if its angle there overlaps
+	//  the angle a final triangle makes at that corner. Both
+	//  angles are below pi, so they overlap when one starts
+	//  inside the other or both start the same way, which
+	//  Predicates.orient decides exactly
+	//-----------------------------------------------------------
+	private int[] seamTriangles(PointStore sites, Slab[] slab, DelaunayTriangulation seamDt, boolean[] seam, int[] seamGlobal, int[] seamId){
+		int ns = seamGlobal.length;
+
+		// final triangles around every seam site, in compressed rows
+		int[] first = new int[ns + 1];
+		for (Slab S : slab){
+			for (int k = 0; k < S.tri.length; k++){
+				int g = S.tri[k];
+				if (seam[g]) first[seamId[g] + 1]++;
+			}
+		}
+		for (int s = 0; s < ns; s++){
+			first[s + 1] += first[s];
+		}
+		// (other, other) corner pairs, counter-clockwise from the seam site
+		int[] wedge = new int[2*first[ns]];
+		int[] fill = Arrays.copyOf(first, ns);
+		for (Slab S : slab){
+			for (int k = 0; k < S.tri.length; k++){
+				int g = S.tri[k];
+				if (!seam[g]) continue;
+				int base = k - k % 3;
+				int at = fill[seamId[g]]++;
+				wedge[2*at] = S.tri[base + (k + 1) % 3];
+				wedge[2*at + 1] = S.tri[base + (k + 2) % 3];
+			}
+		}
+
+		int m = seamDt.getTriangleCount();
+		int[] keep = new int[3*m];
+		int kept = 0;
+		for (int t = 0; t < m; t++){
+			int a = seamGlobal[seamDt.getCorner(t, 0)];
+			int b = seamGlobal[seamDt.getCorner(t, 1)];
+			int c = seamGlobal[seamDt.getCorner(t, 2)];
+
+			boolean covered = false;
+			int s = seamId[a];
+			for (int k = first[s]; k < first[s + 1] && !covered; k++){
+				covered = overlap(sites, a, b, c, wedge[2*k], wedge[2*k + 1]);
+			}
+
+			if (!covered){
+				keep[kept++] = a;
+				keep[kept++] = b;
+				keep[kept++] = c;
+			}
+		}
+		return Arrays.copyOf(keep, kept);
+	}
+
+	// whether the angles (b, c) and (p, q) at a, both counter-clockwise and below pi, overlap
+	private static boolean overlap(PointStore sites, int a, int b, int c, int p, int q){
+		int ax = sites.getX(a), ay = sites.getY(a);
+		int bx = sites.getX(b), by = sites.getY(b);
+		int px = sites.getX(p), py = sites.getY(p);
+
+		int turn = Predicates.orient(ax, ay, bx, by, px, py);
+
+		// p strictly inside (b, c), or b strictly inside (p, q)
+		if (turn > 0) return Predicates.orient(ax, ay, px, py, sites.getX(c), sites.getY(c)) > 0;
+		if (turn < 0) return Predicates.orient(ax, ay, bx, by, sites.getX(q), sites.getY(q)) > 0;
+
+		// both start along the same ray
+		return (Long.signum((long)bx - ax) == Long.signum((long)px - ax))
+			&& (Long.signum((long)by - ay) == Long.signum((long)py - ay));
+	}
+}
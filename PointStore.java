@@ -0,0 +1,205 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.awt.*;
+
+// compact set of integer points, the coordinates of point i are x[i] and y[i]
+// algorithms working on a PointStore refer to points by their index
+public class PointStore{
+	private int[] x, y;
+	private int size;
+
+	public PointStore(){
+		this(16);
+	}
+
+	public PointStore(int capacity){
+		x = new int[Math.max(capacity, 1)];
+		y = new int[Math.max(capacity, 1)];
+		size = 0;
+	}
+
+	// copy a list of points, point i of the store is list.get(i)
+	public static PointStore fromPoints(ArrayList<Point> list){
+		PointStore ret = new PointStore(list.size());
+		ret.addAll(list);
+		return ret;
+	}
+
+	public void addAll(ArrayList<Point> list){
+		for (int i = 0; i < list.size(); i++){
+			Point p = list.get(i);
+			add(p.x, p.y);
+		}
+	}
+
+	// returns the index of the new point
+	public int add(int px, int py){
+		if (size == x.length){
+			x = Arrays.copyOf(x, size * 2);
+			y = Arrays.copyOf(y, size * 2);
+		}
+		x[size] = px;
+		y[size] = py;
+		return size++;
+	}
+
+	public void clear(){
+		size = 0;
+	}
+
+	public int size(){ return size; }
+	public int getX(int i){ return x[i]; }
+	public int getY(int i){ return y[i]; }
+
+	// backing arrays, only the first size() entries are meaningful
+	public int[] getXs(){ return x; }
+	public int[] getYs(){ return y; }
+
+	public Point toPoint(int i){
+		return new Point(x[i], y[i]);
+	}
+
+	//-----------------------------------------------------------
+	//  Sort keys, comparing two keys compares the points
+	//  by (x, y) for keyX and by (y, x) for keyY
+	//-----------------------------------------------------------
+	public long keyX(int i){ return pack(x[i], y[i]); }
+	public long keyY(int i){ return pack(y[i], x[i]); }
+
+	private static long pack(int hi, int lo){
+		return ((long)hi << 32) | ((lo ^ Integer.MIN_VALUE) & 0xffffffffL);
+	}
+
+	// indices of all points sorted by x, then by y
+	public int[] sortByX(){
+		int[] order = new int[size];
+		long[] key = new long[size];
+		for (int i = 0; i < size; i++){
+			order[i] = i;
+			key[i] = keyX(i);
+		}
+		sort(order, key, 0, size - 1);
+		return order;
+	}
+
+	// the same order, the sort is split over pool down to parts of cutoff points
+	public int[] sortByX(ForkJoinPool pool, int cutoff){
+		int[] order = new int[size];
+		long[] key = new long[size];
+		for (int i = 0; i < size; i++){
+			order[i] = i;
+			key[i] = keyX(i);
+		}
+		pool.invoke(new SortTask(order, key, 0, size - 1, Math.max(cutoff, 17)));
+		return order;
+	}
+
+	// indices of all points sorted by y, then by x
+	public int[] sortByY(){
+		int[] order = new int[size];
+		long[] key = new long[size];
+		for (int i = 0; i < size; i++){
+			order[i] = i;
+			key[i] = keyY(i);
+		}
+		sort(order, key, 0, size - 1);
+		return order;
+	}
+
+	// drop the repeated points of a sorted order[0..n-1], returns the new length
+	public int unique(int[] order, int n){
+		int m = 0;
+		for (int i = 0; i < n; i++){
+			if ((m == 0) || (x[order[i]] != x[order[m - 1]]) || (y[order[i]] != y[order[m - 1]])){
+				order[m++] = order[i];
+			}
+		}
+		return m;
+	}
+
+	//-----------------------------------------------------------
+	//  Sorts order[lo..hi] by key[order[i]], quicksort with
+	//  insertion sort for the small ranges
+	//-----------------------------------------------------------
+	public static void sort(int[] order, long[] key, int lo, int hi){
+		while (hi - lo > 16){
+			int mid = (lo + hi) >>> 1;
+			if (key[order[mid]] < key[order[lo]]) swap(order, mid, lo);
+			if (key[order[hi]] < key[order[lo]]) swap(order, hi, lo);
+			if (key[order[hi]] < key[order[mid]]) swap(order, hi, mid);
+			long pivot = key[order[mid]];
+
+			int i = lo, j = hi;
+			while (i <= j){
+				while (key[order[i]] < pivot) i++;
+				while (key[order[j]] > pivot) j--;
+				if (i <= j) swap(order, i++, j--);
+			}
+
+			// recurse into the smaller part, loop on the bigger one
+			if (j - lo < hi - i){
+				sort(order, key, lo, j);
+				lo = i;
+			}else{
+				sort(order, key, i, hi);
+				hi = j;
+			}
+		}
+
+		for (int i = lo + 1; i <= hi; i++){
+			int cur = order[i];
+			int j = i - 1;
+			while ((j >= lo) && (key[order[j]] > key[cur])){
+				order[j + 1] = order[j];
+				j--;
+			}
+			order[j + 1] = cur;
+		}
+	}
+
+	// the quicksort of sort with both parts of a large range sorted as separate tasks
+	private static class SortTask extends RecursiveAction{
+		private static final long serialVersionUID = 1L;
+
+		private final int[] order;
+		private final long[] key;
+		private final int lo, hi, cutoff;
+
+		SortTask(int[] order, long[] key, int lo, int hi, int cutoff){
+			this.order = order;
+			this.key = key;
+			this.lo = lo;
+			this.hi = hi;
+			this.cutoff = cutoff;
+		}
+
+		protected void compute(){
+			if (hi - lo < cutoff){
+				sort(order, key, lo, hi);
+				return;
+			}
+
+			int mid = (lo + hi) >>> 1;
+			if (key[order[mid]] < key[order[lo]]) swap(order, mid, lo);
+			if (key[order[hi]] < key[order[lo]]) swap(order, hi, lo);
+			if (key[order[hi]] < key[order[mid]]) swap(order, hi, mid);
+			long pivot = key[order[mid]];
+
+			int i = lo, j = hi;
+			while (i <= j){
+				while (key[order[i]] < pivot) i++;
+				while (key[order[j]] > pivot) j--;
+				if (i <= j) swap(order, i++, j--);
+			}
+
+			invokeAll(new SortTask(order, key, lo, j, cutoff), new SortTask(order, key, i, hi, cutoff));
+		}
+	}
+
+	private static void swap(int[] order, int i, int j){
+		int t = order[i];
+		order[i] = order[j];
+		order[j] = t;
+	}
+}
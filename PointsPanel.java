@@ -5,8 +5,7 @@
 //*************************************************************
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.nio.FloatBuffer;
 import javax.swing.JPanel;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
@@ -16,8 +15,14 @@ import java.awt.event.*;
 
 public class PointsPanel extends JPanel {
 	private ArrayList<Point> pointList;
-	private ArrayList<Point> hull;
-	private ArrayList<Line2D.Double> voronoiDiagram;
+	private VoronoiEdgeCache voronoiEdges;
+	private Line2D.Float voronoiEdge;
+	private IncrementalVoronoi voronoi;
+	private DynamicConvexHull dynamicHull;
+	private PointStore hullPoints;
+	private HullMetrics metrics;
+	private HullListener hullListener;
+	private boolean hullChanged;
 	private JLabel counterText, areaText, closestPairText;
 	private int pointCounter;
 
@@ -30,7 +35,13 @@ public class PointsPanel extends JPanel {
 	//-----------------------------------------------------------
 	public PointsPanel(JLabel counterText, JLabel areaText, JLabel closestPairText) {
 		pointList = new ArrayList<Point>();
-		hull = new ArrayList<Point>();
+		voronoiEdges = new VoronoiEdgeCache();
+		voronoiEdge = new Line2D.Float();
+		voronoi = new IncrementalVoronoi();
+		dynamicHull = new DynamicConvexHull();
+		hullPoints = new PointStore();
+		metrics = new HullMetrics();
+		hullListener = new HullListener();
 		showConvexHull = showClosestPair = showVoronoi = false;
 
 		addMouseListener(new PointsListener());
@@ -58,16 +69,13 @@ public class PointsPanel extends JPanel {
 			page.fillOval(spot.x - 2, spot.y - 2, 5, 5);
 		}
 
-		// 
+		// the results are worked out when the points or flags change, painting only reads them
 		if(showConvexHull) {
-			if(pointList.size() > 2) convexHull();
-			for (int i = 0; i < hull.size(); i++) 
-				page.drawLine(hull.get(i).x, hull.get(i).y, hull.get(succ(i, hull)).x, hull.get(succ(i, hull)).y);
+			for (int i = 0; i < hullPoints.size(); i++) 
+				page.drawLine(hullPoints.getX(i), hullPoints.getY(i), hullPoints.getX(succ(i, hullPoints)), hullPoints.getY(succ(i, hullPoints)));
 		}
 		
 		if(showClosestPair) {
-			if(pointList.size() > 1) findClosestPair();
-
 			if(pairA != null && pairB != null) {
 				page.setColor(Color.blue);
 				page.fillOval(pairA.x - 2, pairA.y - 2, 5, 5);
@@ -78,26 +86,55 @@ public class PointsPanel extends JPanel {
 		}
 		
 		if (showVoronoi){
-			if (pointList.size() > 1) findVoronoi();
-			
+			// straight from the cache, one line object reused for every edge
+			float[] segments = voronoiEdges.getSegments();
 			((Graphics2D) page).setColor(Color.RED);
-			for (int i = 0; i < voronoiDiagram.size(); i++){
-				((Graphics2D) page).draw(voronoiDiagram.get(i));
+			for (int t = 0; t < voronoiEdges.getSlotCount(); t++){
+				for (int j = 0; j < voronoiEdges.getCount(t); j++){
+					int o = VoronoiEdgeCache.offset(t, j);
+					voronoiEdge.setLine(segments[o], segments[o + 1], segments[o + 2], segments[o + 3]);
+					((Graphics2D) page).draw(voronoiEdge);
+				}
+			}
+
+			// the lines of colinear sites
+			FloatBuffer lines = voronoiEdges.getLines();
+			for (int i = 0; i < lines.position(); i += 4){
+				voronoiEdge.setLine(lines.get(i), lines.get(i + 1), lines.get(i + 2), lines.get(i + 3));
+				((Graphics2D) page).draw(voronoiEdge);
 			}
 		}
 	}
 
-	public void updateConvexHullFlag(boolean newValue) { showConvexHull = newValue; repaint(); }
-	public void updateClosestPairFlag(boolean newValue) { showClosestPair = newValue; repaint(); }
-	public void updateVoronoiFlag(boolean newValue){ showVoronoi = newValue; repaint(); }
+	public void updateConvexHullFlag(boolean newValue) { showConvexHull = newValue; update(); }
+	public void updateClosestPairFlag(boolean newValue) { showClosestPair = newValue; update(); }
+	public void updateVoronoiFlag(boolean newValue){ showVoronoi = newValue; update(); }
+	
+	//------------------------------------------------------------
+	//  Recomputes whatever is shown from the current points and
+	//  redraws. The algorithms only read the point list, their
+	//  results are kept here for painting
+	//-----------------------------------------------------------
+	private void update() {
+		if(showConvexHull && pointList.size() > 2) convexHull();
+		if(showClosestPair && pointList.size() > 1) findClosestPair();
+		if(showVoronoi && pointList.size() > 1) findVoronoi();
+		
+		repaint();
+		setInfo(-1);
+	}
 	
 	//------------------------------------------------------------
 	//  Clear all of the points in the list
 	//-----------------------------------------------------------
 	public void clear() {
 		pointList = new ArrayList<Point>();
-		hull = new ArrayList<Point>();
-		voronoiDiagram = new ArrayList<Line2D.Double>();
+		hullPoints.clear();
+		hullChanged = false;
+		voronoiEdges.clear();
+		voronoi.clear();
+		dynamicHull = new DynamicConvexHull();
+		metrics.clear();
 		pairA = pairB = null;
 		repaint();
 		
@@ -112,98 +149,15 @@ public class PointsPanel extends JPanel {
 		counterText.setText(" Counter : " + pointCounter);
 		
 		if(pairA == null) closestPairText.setText(" Closest Distance : -");
-		else closestPairText.setText(String.format(" Closest Distance : %.5g", EuclidDistance(pairA, pairB)));
+		else closestPairText.setText(String.format(" Closest Distance : %.5g", Math.sqrt(MathHelper.getSquaredDistance(pairA, pairB))));
 		
 		if(areaNum > -0.5) areaText.setText(" Area	   : " + areaNum);
 	}
 
-	//------------------------------------------------------------
-	//  Returns -1 if right turn, 1 if left turn, 0 if collinear
-	//-----------------------------------------------------------
-	private int areaSign(Point a, Point b, Point c) {
-		int px = b.x - a.x;
-		int py = b.y - a.y;
-
-		int qx = c.x - b.x;
-		int qy = c.y - b.y;
-
-		int result = px * qy - qx * py;
-
-		if (result < 0) {
-			return -1;
-		}
-		if (result > 0) {
-			return 1;
-		}
-		return 0;
-	}
-	
-	//------------------------------------------------------------
-	//  Checks the following points turn
-	//-----------------------------------------------------------
-	private boolean leftTurn(Point a, Point b, Point c) { return (areaSign(a, b, c) > 0); }
-	private boolean rightTurn(Point a, Point b, Point c) { return (areaSign(a, b, c) < 0); }
-	private boolean collinear(Point a, Point b, Point c) { return (areaSign(a, b, c) == 0); }
-
-	//------------------------------------------------------------
-	//  Checks if Points in pointList from index left to right 
-	//  are all collinear
-	//-----------------------------------------------------------
-	private boolean allCollinear(int left, int right) {
-		boolean result = true;
-
-		// check if the first two points and each other points are collinear
-		for (int i = left + 2; i <= right; i++) {
-			if (!collinear(pointList.get(left), pointList.get(left + 1), pointList.get(i))) {
-				// one of them are not collinear
-				result = false;
-				break;
-			}
-		}
-		return result;
-	}
-
-	//------------------------------------------------------------
-	//  Returns the index of right most point in arr
-	//-----------------------------------------------------------
-	private int rightMostID(ArrayList<Point> arr) {
-		int result = 0;
-		for (int i = 0; i < arr.size(); i++) {
-			if (arr.get(result).x < arr.get(i).x) {
-				result = i;
-			}
-		}
-		return result;
-	}
-
-	//------------------------------------------------------------
-	//  Returns the index of left most point in arr
-	//-----------------------------------------------------------
-	private int leftMostID(ArrayList<Point> arr) {
-		int result = 0;
-		for (int i = 0; i < arr.size(); i++) {
-			if (arr.get(result).x > arr.get(i).x) {
-				result = i;
-			}
-		}
-		return result;
-	}
-
-	//------------------------------------------------------------
-	//  Returns the predecessor index of x in arr
-	//-----------------------------------------------------------
-	private int pred(int x, ArrayList<Point> arr) {
-		int res = x - 1;
-		if (res < 0) {
-			res = arr.size() - 1;
-		}
-		return res;
-	}
-
 	//------------------------------------------------------------
 	//  Returns the successor index of x in arr
 	//-----------------------------------------------------------
-	private int succ(int x, ArrayList<Point> arr) {
+	private int succ(int x, PointStore arr) {
 		int res = x + 1;
 		if (res >= arr.size()) {
 			res = 0;
@@ -211,195 +165,6 @@ public class PointsPanel extends JPanel {
 		return res;
 	}
 
-	//------------------------------------------------------------
-	//  Let B = p1'th element in arrayList a, A = the element before B
-	//  and C = p2'th element in arrayList b, D = the element after C
-	//-----------------------------------------------------------
-	//  This function checks if (A, B, C) forms a right turn
-	//-----------------------------------------------------------
-	private boolean goodForUpperLeft(int p1, int p2, ArrayList<Point> a, ArrayList<Point> b){
-		return rightTurn(a.get(pred(p1,a)), a.get(p1), b.get(p2));
-	}
-	//-----------------------------------------------------------
-	//  And this function checks if (B, C, D) forms a right turn
-	//-----------------------------------------------------------
-	private boolean goodForUpperRight(int p1, int p2, ArrayList<Point> a, ArrayList<Point> b){
-		return rightTurn(a.get(p1), b.get(p2), b.get(succ(p2,b)));
-	}
-	
-	//------------------------------------------------------------
-	//  Let B = p1'th element in arrayList a, A = the element after B
-	//  and C = p2'th element in arrayList b, D = the element before C
-	//-----------------------------------------------------------
-	//  This function checks if (A, B, C) forms a left turn
-	//-----------------------------------------------------------
-	private boolean goodForLowerLeft(int p1, int p2, ArrayList<Point> a, ArrayList<Point> b){
-		return leftTurn(a.get(succ(p1,a)), a.get(p1), b.get(p2));
-	}
-	//-----------------------------------------------------------
-	//  And this function checks if (B, C, D) forms a left turn
-	//-----------------------------------------------------------
-	private boolean goodForLowerRight(int p1, int p2, ArrayList<Point> a, ArrayList<Point> b){
-		return leftTurn(a.get(p1), b.get(p2), b.get(pred(p2,b)));
-	}
-
-	//-----------------------------------------------------------
-	//  Merges two convex hulls into one convex hull
-	//-----------------------------------------------------------
-	private ArrayList<Point> merge(ArrayList<Point> a, ArrayList<Point> b){
-		int id1, id2;
-		int p1, p2;
-		
-		// get the right most and left most id from corresponding ArrayList
-		id1 = rightMostID(a);
-		id2 = leftMostID(b);
-		
-		// used to store the last permittable point when finding the tangent line
-		int limP1, limP2;
-
-		// get upper
-		p1 = id1;
-		p2 = id2;
-		limP1 = succ(p1, a);
-		limP2 = pred(p2, b);
-		// while it is not an appropriate Lower tangent line
-		while (!goodForUpperLeft(p1, p2, a, b) || !goodForUpperRight(p1, p2, a, b)){
-			// move the right pointer
-			while (!goodForUpperRight(p1, p2, a, b)){
-				p2 = succ(p2, b);
-				if (p2 == limP2) break;
-			}
-			// move the left pointer
-			while (!goodForUpperLeft(p1, p2, a, b)){
-				p1 = pred(p1, a);
-				if (p1 == limP1) break;
-			}
-
-			// when the limits are touched, we need to check if the tangent line is already found
-			// if yes, quit immediately
-			if ((p1 == limP1) && (p2 == limP2)) break;
-			if ((p1 == limP1) && goodForUpperRight(p1, p2, a, b)) break;
-			if ((p2 == limP2) && goodForUpperLeft(p1, p2, a, b)) break;
-		}
-		int ul1 = p1;
-		int ul2 = p2;
-		
-		// get lower
-		// very similar to the cobe above. It is just a reflection
-		p1 = id1;
-		p2 = id2;
-		limP1 = pred(p1, a);
-		limP2 = succ(p2, b);
-		while (!goodForLowerLeft(p1, p2, a, b) || !goodForLowerRight(p1, p2, a, b)){
-			while (!goodForLowerRight(p1, p2, a, b)){
-				p2 = pred(p2, b);
-				if (p2 == limP2) break;
-			}
-			while (!goodForLowerLeft(p1, p2, a, b)){
-				p1 = succ(p1, a);
-				if (p1 == limP1) break;
-			}
-			if ((p1 == limP1) && (p2 == limP2)) break;
-			if ((p1 == limP1) && goodForLowerRight(p1, p2, a, b)) break;
-			if ((p2 == limP2) && goodForLowerLeft(p1, p2, a, b)) break;
-		}
-		int ll1 = p1;
-		int ll2 = p2;
-		
-		// now, the tangent lines have been found
-		// then we form a new convex hull based from them
-		ArrayList<Point> result = new ArrayList<Point>();
-		result.add(b.get(ll2));
-		result.add(a.get(ll1));
-		
-		if(ll1 != ul1) while(succ(ll1, a) != ul1) {
-			ll1 = succ(ll1, a);
-			result.add(a.get(ll1));
-		}
-		
-		if (ll1 != ul1) result.add(a.get(ul1));
-		if (ul2 != ll2) result.add(b.get(ul2));
-		
-		if(ul2 != ll2) while(succ(ul2, b) != ll2) {
-			ul2 = succ(ul2, b);
-			result.add(b.get(ul2));
-		}
-		
-		return result;
-	}
-
-	//-----------------------------------------------------------
-	//  Finds a convex hull from pointList, index l to r
-	//  Recursively compute convex hull, with divide and conquer algorithm	 
-	//-----------------------------------------------------------
-	private ArrayList<Point> findConvexHull(int l, int r) {
-		int size = r - l + 1;
-		ArrayList<Point> result = new ArrayList<Point>();
-
-		// small enough to solve
-		if (size <= 3) {
-			// simply list them
-			for (int i = l; i <= r; i++) {
-				result.add(pointList.get(i));
-			}
-
-			// keep them clockwise
-			if (size == 3) {
-				if (collinear(result.get(0), result.get(1), result.get(2))) {
-					result.remove(1);
-				} else if (!rightTurn(result.get(0), result.get(1), result.get(2))) {
-					Point temp = result.get(1);
-					result.remove(1);
-					result.add(temp);
-				}
-			}
-		} else if (allCollinear(l, r)) {
-			//simply list the edges
-			result.add(pointList.get(l));
-			result.add(pointList.get(r));
-		} else {
-			int m = (l + r) / 2;
-
-			//find a split
-			while ((m + 1 <= r)
-					&& (pointList.get(m).x == pointList.get(m + 1).x)) {
-				m++;
-			}
-			if (m + 1 > r) {
-				m = (l + r) / 2;
-				while (pointList.get(m).x == pointList.get(m + 1).x) {
-					m--;
-				}
-			}
-
-			// independently finds convex hulls
-			ArrayList<Point> leftHull = findConvexHull(l, m);
-			ArrayList<Point> rightHull = findConvexHull(m + 1, r);
-
-			// merges those found convex hulls into a big one
-			result = merge(leftHull, rightHull);
-		}
-
-		return result;
-	}
-
-	//-----------------------------------------------------------
-	//  Removes duplicated elements in arr, given that arr are sorted
-	//-----------------------------------------------------------
-	private ArrayList<Point> unique(ArrayList<Point> arr) {
-		PointCompareX comparator = new PointCompareX();
-		ArrayList<Point> result = new ArrayList<Point>();
-
-		result.add(arr.get(0));
-		for (int i = 1; i < arr.size(); i++) {
-			if (comparator.compare(arr.get(i - 1), arr.get(i)) != 0) {
-				result.add(arr.get(i));
-			}
-		}
-
-		return result;
-	}
-
 	//-----------------------------------------------------------
 	//  Finds and show the convex hull
 	//-----------------------------------------------------------
@@ -409,102 +174,24 @@ public class PointsPanel extends JPanel {
 			return;
 		}
 
-		hull = new ArrayList<Point>();
-
-		Collections.sort(pointList, new PointCompareX());
-		pointList = unique(pointList);
-		hull = findConvexHull(0, pointList.size() - 1);
-
-		repaint();
+		// the dynamic hull already holds every point added so far, and the metrics
+		// follow its edges. It is only listed again once a click changed it
+		if (hullChanged) {
+			dynamicHull.getHull(hullPoints);
+			hullChanged = false;
+		}
 	}
 	
 	//-----------------------------------------------------------
 	//  Finds the area of convex hull found
 	//-----------------------------------------------------------
 	public void findArea() {
-		if(hull.size() == 0) {
+		if(hullPoints.size() == 0) {
 			JOptionPane.showMessageDialog(null, "Please find the convex hull first!\n(press 'Convex Hull' button)");
 			return;
 		}
 		
-		int area = 0;
-		int N = hull.size();
-		
-		for(int i = 0; i < N; i++) {
-			area += hull.get(i).x * (hull.get((i - 1 + N) % N).y - hull.get((i + 1) % N).y);
-		}
-		
-		area *= 0.5;
-		repaint();
-		
-		setInfo(area);
-	}
-	
-	//-----------------------------------------------------------
-	//  Finds the Euclidean distance between A and B
-	//-----------------------------------------------------------
-	public double EuclidDistance(Point A, Point B) {
-		return Math.sqrt(Math.pow(A.x - B.x, 2) + Math.pow(A.y - B.y, 2));
-	}
-	
-	//-----------------------------------------------------------
-	//  Finding closest pair between pointList[xLeft..xRight]
-	//  Y is the sorted-by-Y points in pointList[xLeft..xRight]
-	//  Stores the pair globally in pairA and pairB
-	//-----------------------------------------------------------
-	public void dividePoint(int xLeft, int xRight, ArrayList<Point> Y) {
-		//base case
-		if(xRight - xLeft + 1 <= 3) {		
-			for(int i = xLeft; i < xRight; i++)
-				for(int j = i + 1; j <= xRight; j++) {
-					double tempDis = EuclidDistance(pointList.get(i), pointList.get(j));		
-					//recall that pairA and pairB are global
-					if((pairA == null) || EuclidDistance(pairA, pairB) > tempDis) {
-						pairA = pointList.get(i);
-						pairB = pointList.get(j);
-					}
-				}
-			
-			//no need to proceed
-			return;
-		}
-		
-		int xMid = (xLeft + xRight) / 2;
-		
-		//splitting Y into YLeft and YRight by their x-coordinate
-		ArrayList<Point> YLeft, YRight;
-		YLeft = new ArrayList<Point>();
-		YRight = new ArrayList<Point>();
-		PointCompareX comparator = new PointCompareX();
-		for(int i = 0; i < Y.size(); i++) {
-			Point now = Y.get(i);
-			if(comparator.compare(now, pointList.get(xMid)) <= 0) YLeft.add(now); 
-			else YRight.add(now);
-		}
-		
-		//recursively finds the closest pair
-		dividePoint(xLeft, xMid, YLeft);
-		dividePoint(xMid + 1, xRight, YRight);
-		
-		//distNow stores the distance of closest pair right now
-		double disNow = EuclidDistance(pairA, pairB);
-		
-		//filtering Y, so we get the points in the middle stripe
-		ArrayList<Point> Ymid = new ArrayList<Point>();
-		for(int i = 0; i < Y.size(); i++) 
-			if(Math.abs(Y.get(i).x - pointList.get(xMid).x) <= disNow) Ymid.add(Y.get(i));
-		
-		//finding the possible closest pair in the middle stripe
-		for(int i = 0; i < Ymid.size(); i++)
-			//need only to check 7 next points
-			for(int j = 1; j <= 7 && i + j < Ymid.size(); j++) {
-				double disTemp = EuclidDistance(Ymid.get(i), Ymid.get(i + j));
-				if(disTemp < disNow) {
-					disNow = disTemp;
-					pairA = Ymid.get(i);
-					pairB = Ymid.get(i + j);
-				}
-			}
+		setInfo(metrics.getArea());
 	}
 	
 	//-----------------------------------------------------------
@@ -516,47 +203,37 @@ public class PointsPanel extends JPanel {
 			return;
 		}
 		
-		Collections.sort(pointList, new PointCompareX());
-		pointList = unique(pointList);
-		
-		ArrayList<Point> Y = new ArrayList<Point>();
-		for(int i = 0; i < pointList.size(); i++) Y.add(new Point());
-		Collections.copy(Y, pointList);
-		Collections.sort(Y, new PointCompareY());
-		
-		dividePoint(0, pointList.size() - 1, Y);
-		repaint();
-		setInfo(-1);
+		Point[] pair = ClosestPair.findClosestPair(pointList);
+		if(pair == null) pairA = pairB = null;
+		else {
+			pairA = pair[0];
+			pairB = pair[1];
+		}
 	}
 	
+	//-----------------------------------------------------------
+	//  Reads the voronoi diagram off the incremental one, which
+	//  already holds every point added so far. Only the edges of
+	//  the triangles the clicks since the last call changed are
+	//  cut again
+	//-----------------------------------------------------------
 	public void findVoronoi() {
-		voronoiDiagram = VoronoiGenerator.getVoronoiDiagram(pointList);
+		voronoiEdges.update(voronoi);
 	}
 	
 	//***********************************************************
-	//  Compares two points according to the smaller x first, 
-	//  then the smaller y first
+	//  Takes the hull edges a click changes into the metrics,
+	//  and notes that the hull drawn is out of date
 	//***********************************************************
-	public class PointCompareX implements Comparator<Point> {
-		public int compare(final Point a, final Point b) {
-			if (a.x != b.x) {
-				return a.x - b.x;
-			} else {
-				return a.y - b.y;
-			}
+	private class HullListener implements HullEdgeSink {
+		public void removed(int ax, int ay, int bx, int by) {
+			metrics.removed(ax, ay, bx, by);
+			hullChanged = true;
 		}
-	}
-	//***********************************************************
-	//  Compares two points according to the smaller y first, 
-	//  then the smaller x first
-	//***********************************************************
-	public class PointCompareY implements Comparator<Point> {
-		public int compare(final Point a, final Point b) {
-			if (a.y != b.y) {
-				return a.y - b.y;
-			} else {
-				return a.x - b.x;
-			}
+
+		public void added(int ax, int ay, int bx, int by) {
+			metrics.added(ax, ay, bx, by);
+			hullChanged = true;
 		}
 	}
 
@@ -572,10 +249,11 @@ public class PointsPanel extends JPanel {
 
 		public void mousePressed(MouseEvent event) {
 			pointList.add(event.getPoint());
-			repaint();
+			voronoi.insert(event.getX(), event.getY());
+			dynamicHull.insert(event.getX(), event.getY(), hullListener);
 			
 			pointCounter++;
-			setInfo(-1);
+			update();
 		}
 
 		//-----------------------------------------------------
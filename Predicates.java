@@ -0,0 +1,224 @@
+//**************************************************************
+//  Predicates.java
+//
+//  Orientation, in-circle and distance comparison tests on integer
+//  coordinates, in the style of Shewchuk's adaptive predicates.
+//  Each test is first evaluated in plain double arithmetic, and the
+//  sign is returned right away when it is larger than a bound on
+//  the rounding error. Only nearly degenerate inputs fall through
+//  to the exact evaluation, which keeps every rounding error as an
+//  extra term (twoSum, twoProduct) so the sign is always exact.
+//
+//  Differences of two ints are exact in double, the exact stages
+//  rely on it.
+//*************************************************************
+
+public class Predicates {
+	// half an ulp of 1, the relative error of one rounded operation
+	private static final double EPSILON = Math.ulp(1.0) / 2;
+
+	// error bounds of the double evaluations, relative to the sum of
+	// the magnitudes of their products (Shewchuk's ccwerrboundA and
+	// iccerrboundA, the distance test has the same shape as orient)
+	private static final double ORIENT_BOUND = (3.0 + 16.0*EPSILON) * EPSILON;
+	private static final double INCIRCLE_BOUND = (10.0 + 96.0*EPSILON) * EPSILON;
+	private static final double DISTANCE_BOUND = (3.0 + 16.0*EPSILON) * EPSILON;
+
+	private Predicates() {
+	}
+
+	//-----------------------------------------------------------
+	//  Sign of the cross product (b - a) x (c - a): positive when
+	//  (a, b, c) turns the same way as MathHelper.areaSign calls
+	//  positive, 0 if the points are collinear
+	//-----------------------------------------------------------
+	public static int orient(int ax, int ay, int bx, int by, int cx, int cy) {
+		double acx = (double)ax - cx, bcx = (double)bx - cx;
+		double acy = (double)ay - cy, bcy = (double)by - cy;
+
+		double detLeft = acx * bcy;
+		double detRight = acy * bcx;
+		double det = detLeft - detRight;
+
+		// the two products have opposite signs, nothing cancels
+		double detSum;
+		if (detLeft > 0) {
+			if (detRight <= 0) return signum(det);
+			detSum = detLeft + detRight;
+		} else if (detLeft < 0) {
+			if (detRight >= 0) return signum(det);
+			detSum = -detLeft - detRight;
+		} else {
+			return signum(det);
+		}
+
+		double bound = ORIENT_BOUND * detSum;
+		if ((det >= bound) || (-det >= bound)) return signum(det);
+
+		return differenceSign(acx, bcy, acy, bcx);
+	}
+
+	//-----------------------------------------------------------
+	//  Sign of d against the circle through a, b, c, given with
+	//  orient(a, b, c) > 0: 1 if d is inside, -1 if outside, 0 if
+	//  the four points are cocircular
+	//-----------------------------------------------------------
+	public static int inCircle(int ax, int ay, int bx, int by, int cx, int cy, int dx, int dy) {
+		double adx = (double)ax - dx, ady = (double)ay - dy;
+		double bdx = (double)bx - dx, bdy = (double)by - dy;
+		double cdx = (double)cx - dx, cdy = (double)cy - dy;
+
+		double bdxcdy = bdx * cdy, cdxbdy = cdx * bdy;
+		double cdxady = cdx * ady, adxcdy = adx * cdy;
+		double adxbdy = adx * bdy, bdxady = bdx * ady;
+
+		double alift = adx*adx + ady*ady;
+		double blift = bdx*bdx + bdy*bdy;
+		double clift = cdx*cdx + cdy*cdy;
+
+		double det = alift * (bdxcdy - cdxbdy)
+		           + blift * (cdxady - adxcdy)
+		           + clift * (adxbdy - bdxady);
+
+		double permanent = (Math.abs(bdxcdy) + Math.abs(cdxbdy)) * alift
+		                 + (Math.abs(cdxady) + Math.abs(adxcdy)) * blift
+		                 + (Math.abs(adxbdy) + Math.abs(bdxady)) * clift;
+
+		double bound = INCIRCLE_BOUND * permanent;
+		if ((det > bound) || (-det > bound)) return signum(det);
+
+		return inCircleExact(adx, ady, bdx, bdy, cdx, cdy);
+	}
+
+	//-----------------------------------------------------------
+	//  Sign of |a - b|^2 - |c - d|^2, so negative when a and b are
+	//  closer to each other than c and d are
+	//-----------------------------------------------------------
+	public static int compareDistance(int ax, int ay, int bx, int by, int cx, int cy, int dx, int dy) {
+		double abx = (double)ax - bx, aby = (double)ay - by;
+		double cdx = (double)cx - dx, cdy = (double)cy - dy;
+
+		double ab = abx*abx + aby*aby;
+		double cd = cdx*cdx + cdy*cdy;
+		double det = ab - cd;
+
+		double bound = DISTANCE_BOUND * (ab + cd);
+		if ((det > bound) || (-det > bound)) return signum(det);
+
+		// |a - b|^2 - |c - d|^2 as the exact sum of four products
+		double[] e = new double[8];
+		int n = 0;
+		n = addProduct(e, n, abx, abx);
+		n = addProduct(e, n, aby, aby);
+		n = addProduct(e, n, -cdx, cdx);
+		n = addProduct(e, n, -cdy, cdy);
+		return sign(e, n);
+	}
+
+	//-----------------------------------------------------------
+	//  The exact stages
+	//-----------------------------------------------------------
+
+	private static int signum(double v) {
+		return (v > 0) ? 1 : ((v < 0) ? -1 : 0);
+	}
+
+	// tail of a + b, the part rounded away from x = fl(a + b)
+	private static double twoSumTail(double a, double b, double x) {
+		double bVirt = x - a;
+		double aVirt = x - bVirt;
+		return (a - aVirt) + (b - bVirt);
+	}
+
+	// tail of a * b, the part rounded away from x = fl(a * b)
+	private static double twoProductTail(double a, double b, double x) {
+		return Math.fma(a, b, -x);
+	}
+
+	// exact sign of a*b - c*d. Rounding is monotone, so two different rounded
+	// products are ordered like the exact ones; equal ones differ by their tails
+	private static int differenceSign(double a, double b, double c, double d) {
+		double p = a * b;
+		double q = c * d;
+		if (p != q) return (p > q) ? 1 : -1;
+		return signum(twoProductTail(a, b, p) - twoProductTail(c, d, q));
+	}
+
+	// e[0..n-1] is an expansion, a sum of nonoverlapping doubles ordered by
+	// magnitude. The sign of the sum is the sign of its largest nonzero term
+	private static int sign(double[] e, int n) {
+		for (int i = n - 1; i >= 0; i--) {
+			if (e[i] != 0) return signum(e[i]);
+		}
+		return 0;
+	}
+
+	// adds b to the expansion e[0..n-1] in place, returns the new length
+	// (Shewchuk's grow-expansion, zero terms dropped)
+	private static int grow(double[] e, int n, double b) {
+		int m = 0;
+		double q = b;
+		for (int i = 0; i < n; i++) {
+			double sum = q + e[i];
+			double tail = twoSumTail(q, e[i], sum);
+			q = sum;
+			if (tail != 0) e[m++] = tail;
+		}
+		if ((q != 0) || (m == 0)) e[m++] = q;
+		return m;
+	}
+
+	// adds the exact product a * b to the expansion e[0..n-1], e needs two more slots
+	private static int addProduct(double[] e, int n, double a, double b) {
+		double p = a * b;
+		n = grow(e, n, twoProductTail(a, b, p));
+		return grow(e, n, p);
+	}
+
+	// h = e + f, returns the length of h
+	private static int sum(double[] e, int en, double[] f, int fn, double[] h) {
+		System.arraycopy(e, 0, h, 0, en);
+		int hn = en;
+		for (int i = 0; i < fn; i++) {
+			hn = grow(h, hn, f[i]);
+		}
+		return hn;
+	}
+
+	// h = e * f, returns the length of h
+	private static int product(double[] e, int en, double[] f, int fn, double[] h) {
+		int hn = 0;
+		for (int i = 0; i < en; i++) {
+			for (int j = 0; j < fn; j++) {
+				hn = addProduct(h, hn, e[i], f[j]);
+			}
+		}
+		return hn;
+	}
+
+	// exact in-circle determinant of the differences to d, every difference of two
+	// ints is exact so the determinant is a sum of products of exact doubles
+	private static int inCircleExact(double adx, double ady, double bdx, double bdy, double cdx, double cdy) {
+		double[] total = new double[256];
+		int totalN = 0;
+
+		double[] lift = new double[4], cross = new double[4];
+		double[] term = new double[32], acc = new double[256];
+
+		double[][] d = {{adx, ady}, {bdx, bdy}, {cdx, cdy}};
+		for (int i = 0; i < 3; i++) {
+			double[] u = d[i], v = d[(i + 1) % 3], w = d[(i + 2) % 3];
+
+			// |u|^2 * (v x w)
+			int liftN = addProduct(lift, addProduct(lift, 0, u[0], u[0]), u[1], u[1]);
+			int crossN = addProduct(cross, addProduct(cross, 0, v[0], w[1]), -w[0], v[1]);
+			int termN = product(lift, liftN, cross, crossN, term);
+
+			totalN = sum(total, totalN, term, termN, acc);
+			double[] t = total;
+			total = acc;
+			acc = t;
+		}
+		return sign(total, totalN);
+	}
+}
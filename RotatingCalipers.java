@@ -0,0 +1,259 @@
+//**************************************************************
+//  RotatingCalipers.java
+//
+//  Measures a convex hull by rotating calipers: the diameter
+//  (farthest pair of points), the minimum width and the enclosing
+//  rectangles of least area and least perimeter, all in one O(H)
+//  pass. For each hull edge the points extreme along it, against
+//  it and away from it only move forward around the hull, so four
+//  pointers go around once.
+//
+//  The hull is given as ConvexHull returns it, indices into a
+//  PointStore clockwise with no point in the middle of an edge.
+//*************************************************************
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.awt.*;
+
+public class RotatingCalipers {
+	// half an ulp of 1, for the error bound in crossSign
+	private static final double EPSILON = Math.ulp(1.0) / 2;
+
+	private int diameterA, diameterB;
+	private double diameter, width;
+
+	// corners clockwise, x0, y0, x1, y1, ..
+	private double[] areaRectangle, perimeterRectangle;
+	private double minArea, minPerimeter;
+
+	private int[] x, y, hull;
+	private int h;
+
+	private RotatingCalipers(PointStore ps, int[] hull) {
+		this.x = ps.getXs();
+		this.y = ps.getYs();
+		this.hull = hull;
+		this.h = hull.length;
+
+		diameterA = diameterB = -1;
+		areaRectangle = new double[8];
+		perimeterRectangle = new double[8];
+	}
+
+	//-----------------------------------------------------------
+	//  Measures the hull, given as indices into ps clockwise
+	//-----------------------------------------------------------
+	public static RotatingCalipers measure(PointStore ps, int[] hull) {
+		RotatingCalipers c = new RotatingCalipers(ps, hull);
+		if (hull.length == 1) {
+			c.single();
+		} else if (hull.length > 1) {
+			c.rotate();
+		}
+
+		// the references are not needed once measured
+		c.x = c.y = c.hull = null;
+		return c;
+	}
+
+	//-----------------------------------------------------------
+	//  Point adapter, hull as returned by findConvexHull. The
+	//  diameter's points are positions in the list
+	//-----------------------------------------------------------
+	public static RotatingCalipers measure(ArrayList<Point> hull) {
+		PointStore ps = PointStore.fromPoints(hull);
+		int[] ids = new int[hull.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = i;
+		}
+		return measure(ps, ids);
+	}
+
+	//-----------------------------------------------------------
+	//  out[i] = measure(ps[i], hulls[i]), the hulls are spread
+	//  over pool as fork-join tasks, the common pool by default
+	//-----------------------------------------------------------
+	public static RotatingCalipers[] measureAll(PointStore[] ps, int[][] hulls) {
+		return measureAll(ps, hulls, ForkJoinPool.commonPool());
+	}
+
+	public static RotatingCalipers[] measureAll(PointStore[] ps, int[][] hulls, ForkJoinPool pool) {
+		RotatingCalipers[] out = new RotatingCalipers[hulls.length];
+		if (hulls.length > 0) {
+			pool.invoke(new MeasureTask(ps, hulls, out, 0, hulls.length - 1));
+		}
+		return out;
+	}
+
+	//-----------------------------------------------------------
+	//  Measures hulls l..r, halving the range until one is left.
+	//  Every task writes its own entries of out
+	//-----------------------------------------------------------
+	private static class MeasureTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final PointStore[] ps;
+		private final int[][] hulls;
+		private final RotatingCalipers[] out;
+		private final int l, r;
+
+		MeasureTask(PointStore[] ps, int[][] hulls, RotatingCalipers[] out, int l, int r) {
+			this.ps = ps;
+			this.hulls = hulls;
+			this.out = out;
+			this.l = l;
+			this.r = r;
+		}
+
+		protected void compute() {
+			if (l == r) {
+				out[l] = measure(ps[l], hulls[l]);
+				return;
+			}
+
+			int m = (l + r) >>> 1;
+			invokeAll(new MeasureTask(ps, hulls, out, l, m), new MeasureTask(ps, hulls, out, m + 1, r));
+		}
+	}
+
+	// indices of the farthest pair of points, -1 for an empty hull
+	public int getDiameterA() { return diameterA; }
+	public int getDiameterB() { return diameterB; }
+	public double getDiameter() { return diameter; }
+
+	// least distance between two parallel lines holding the hull between them
+	public double getWidth() { return width; }
+
+	// corners clockwise as x0, y0, .., x3, y3. A rectangle may be flat
+	public double[] getMinAreaRectangle() { return areaRectangle; }
+	public double getMinArea() { return minArea; }
+	public double[] getMinPerimeterRectangle() { return perimeterRectangle; }
+	public double getMinPerimeter() { return minPerimeter; }
+
+	private void single() {
+		diameterA = diameterB = hull[0];
+		for (int k = 0; k < 8; k += 2) {
+			areaRectangle[k] = perimeterRectangle[k] = x[hull[0]];
+			areaRectangle[k + 1] = perimeterRectangle[k + 1] = y[hull[0]];
+		}
+	}
+
+	//-----------------------------------------------------------
+	//  One turn of the calipers. For edge i, from p(i) to p(i+1),
+	//  the hull is on its right. Going on clockwise from p(i+1)
+	//  come the point furthest along the edge (far), then the one
+	//  furthest from its line (top), then the one furthest back
+	//  (back)
+	//-----------------------------------------------------------
+	private void rotate() {
+		int far = 1, top = 0, back = 0;
+		width = minArea = minPerimeter = Double.POSITIVE_INFINITY;
+		diameterA = hull[0];
+		diameterB = hull[1];
+
+		for (int i = 0; i < h; i++) {
+			int a = hull[i], b = hull[next(i)];
+			long ex = (long)x[b] - x[a], ey = (long)y[b] - y[a];
+
+			while (dotSign(ex, ey, far) > 0) far = next(far);
+			if (i == 0) top = far;
+			while (crossSign(ex, ey, top) < 0) top = next(top);
+			if (i == 0) back = top;
+			while (dotSign(ex, ey, back) < 0) back = next(back);
+
+			// the top point and its follower when level with it are antipodal to both ends
+			considerPair(a, hull[top]);
+			considerPair(b, hull[top]);
+			if (crossSign(ex, ey, top) == 0) {
+				considerPair(a, hull[next(top)]);
+				considerPair(b, hull[next(top)]);
+			}
+
+			measureEdge(a, b, ex, ey, hull[far], hull[top], hull[back]);
+		}
+		diameter = Math.sqrt(squared(diameterA, diameterB));
+	}
+
+	private int next(int i) {
+		return (i + 1 == h) ? 0 : i + 1;
+	}
+
+	//-----------------------------------------------------------
+	//  The rectangle with a side on the edge from a to b, along
+	//  (ex, ey)
+	//-----------------------------------------------------------
+	private void measureEdge(int a, int b, long ex, long ey, int far, int top, int back) {
+		double len = Math.hypot(ex, ey);
+		double ux = ex / len, uy = ey / len;
+
+		// along the edge and into the hull, from a
+		double s0 = (x[back] - (double)x[a]) * ux + (y[back] - (double)y[a]) * uy;
+		double s1 = (x[far] - (double)x[a]) * ux + (y[far] - (double)y[a]) * uy;
+		double t = (x[top] - (double)x[a]) * uy - (y[top] - (double)y[a]) * ux;
+
+		// top is never left of the edge, and on its line for a flat hull, where the
+		// rounded t may come out a little below 0
+		if (Predicates.orient(x[a], y[a], x[b], y[b], x[top], y[top]) == 0) t = 0;
+		else t = Math.max(t, 0);
+
+		double w = s1 - s0;
+		width = Math.min(width, t);
+		if (w * t < minArea) {
+			minArea = w * t;
+			rectangle(areaRectangle, a, ux, uy, s0, s1, t);
+		}
+		if (2 * (w + t) < minPerimeter) {
+			minPerimeter = 2 * (w + t);
+			rectangle(perimeterRectangle, a, ux, uy, s0, s1, t);
+		}
+	}
+
+	private void rectangle(double[] r, int a, double ux, double uy, double s0, double s1, double t) {
+		// the inside is to the right of (ux, uy), along (uy, -ux)
+		double ax = x[a], ay = y[a];
+		r[0] = ax + s0*ux;         r[1] = ay + s0*uy;
+		r[2] = ax + s1*ux;         r[3] = ay + s1*uy;
+		r[4] = r[2] + t*uy;        r[5] = r[3] - t*ux;
+		r[6] = r[0] + t*uy;        r[7] = r[1] - t*ux;
+	}
+
+	private void considerPair(int p, int q) {
+		if (Predicates.compareDistance(x[p], y[p], x[q], y[q], x[diameterA], y[diameterA], x[diameterB], y[diameterB]) > 0) {
+			diameterA = p;
+			diameterB = q;
+		}
+	}
+
+	private double squared(int p, int q) {
+		double dx = (double)x[p] - x[q], dy = (double)y[p] - y[q];
+		return dx*dx + dy*dy;
+	}
+
+	//-----------------------------------------------------------
+	//  Sign of e x d and e . d for d the hull edge from position
+	//  i, exact. The products need 66 bits, so they are filtered
+	//  in double and redone in BigInteger when too close to call
+	//-----------------------------------------------------------
+	private int crossSign(long ex, long ey, int i) {
+		int p = hull[i], q = hull[next(i)];
+		return crossSign(ex, ey, (long)x[q] - x[p], (long)y[q] - y[p]);
+	}
+
+	private int dotSign(long ex, long ey, int i) {
+		int p = hull[i], q = hull[next(i)];
+		return crossSign(ex, ey, -((long)y[q] - y[p]), (long)x[q] - x[p]);
+	}
+
+	private static int crossSign(long ax, long ay, long bx, long by) {
+		double l = (double)ax * by, r = (double)ay * bx;
+		double d = l - r;
+		if (Math.abs(d) > 4 * EPSILON * (Math.abs(l) + Math.abs(r))) {
+			return (d > 0) ? 1 : -1;
+		}
+		return BigInteger.valueOf(ax).multiply(BigInteger.valueOf(by))
+				.subtract(BigInteger.valueOf(ay).multiply(BigInteger.valueOf(bx))).signum();
+	}
+}
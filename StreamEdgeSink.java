@@ -0,0 +1,71 @@
+import java.io.*;
+
+// writes what it receives to a stream, each piece as a tag byte followed by its
+// coordinates as doubles: 'v' x y, 'e' x1 y1 x2 y2, 'r' x y dx dy. The output is
+// buffered, close (or flush) it once the diagram is done. replay reads such a stream
+// back into any sink
+public class StreamEdgeSink implements VoronoiEdgeSink, Closeable, Flushable{
+	private final DataOutputStream out;
+
+	public StreamEdgeSink(OutputStream out){
+		this.out = new DataOutputStream(new BufferedOutputStream(out));
+	}
+
+	public void vertex(double x, double y){
+		try{
+			out.writeByte('v');
+			out.writeDouble(x);
+			out.writeDouble(y);
+		}catch (IOException e){
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void edge(double x1, double y1, double x2, double y2){
+		write('e', x1, y1, x2, y2);
+	}
+
+	public void ray(double x, double y, double dx, double dy){
+		write('r', x, y, dx, dy);
+	}
+
+	private void write(int tag, double a, double b, double c, double d){
+		try{
+			out.writeByte(tag);
+			out.writeDouble(a);
+			out.writeDouble(b);
+			out.writeDouble(c);
+			out.writeDouble(d);
+		}catch (IOException e){
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void flush() throws IOException{
+		out.flush();
+	}
+
+	public void close() throws IOException{
+		out.close();
+	}
+
+	//-----------------------------------------------------------
+	//  Feeds every piece written by a StreamEdgeSink to sink, in
+	//  the order it was written. Reads until the end of in
+	//-----------------------------------------------------------
+	public static void replay(InputStream in, VoronoiEdgeSink sink) throws IOException{
+		DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+		int tag;
+		while ((tag = data.read()) >= 0){
+			if (tag == 'v'){
+				sink.vertex(data.readDouble(), data.readDouble());
+			}else if (tag == 'e'){
+				sink.edge(data.readDouble(), data.readDouble(), data.readDouble(), data.readDouble());
+			}else if (tag == 'r'){
+				sink.ray(data.readDouble(), data.readDouble(), data.readDouble(), data.readDouble());
+			}else{
+				throw new IOException("unknown tag " + tag);
+			}
+		}
+	}
+}
@@ -0,0 +1,165 @@
+//**************************************************************
+//  StreamingHull.java
+//
+//  Convex hull of a file of points too large for the heap. The
+//  file holds each point as two 4 byte ints, x then y, and is read
+//  through memory mapped windows of a chunk of points, so nothing
+//  is copied through a read buffer. Every chunk is filtered by the
+//  Akl-Toussaint octagon of its points and the hull so far while
+//  still in the mapped window, and only the points left are
+//  copied out and hulled by divide and conquer. That hull is
+//  folded into the hull so far in O(H) by merging their points
+//  by x, keeping memory at O(H + points left of a chunk).
+//*************************************************************
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class StreamingHull {
+	// bytes of one point in the file
+	public static final int POINT_BYTES = 8;
+
+	// points mapped at a time, 8 MB of file
+	public static final int DEFAULT_CHUNK = 1 << 20;
+
+	// the points of a chunk outside the octagon, the hull so far, and both hulls'
+	// points while they are folded
+	private PointStore chunk, running, both;
+
+	// both's points by x, and the hull of them found by MonotoneChain
+	private int[] byX, merged, folded;
+
+	private StreamingHull() {
+		chunk = new PointStore();
+		running = new PointStore();
+		both = new PointStore();
+		byX = merged = folded = new int[0];
+	}
+
+	//-----------------------------------------------------------
+	//  Returns the convex hull's points of the file, clockwise
+	//  from the left most one like ConvexHull. The ints are read
+	//  big endian, as DataOutputStream writes them
+	//-----------------------------------------------------------
+	public static PointStore findConvexHull(Path file) throws IOException {
+		return findConvexHull(file, ByteOrder.BIG_ENDIAN, DEFAULT_CHUNK);
+	}
+
+	public static PointStore findConvexHull(Path file, ByteOrder byteOrder, int chunkSize) throws IOException {
+		if (chunkSize <= 0 || chunkSize > Integer.MAX_VALUE / POINT_BYTES) {
+			throw new IllegalArgumentException("chunk of " + chunkSize + " points");
+		}
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long bytes = channel.size();
+			if (bytes % POINT_BYTES != 0) {
+				throw new IOException(file + " is not a whole number of points");
+			}
+
+			StreamingHull s = new StreamingHull();
+			long points = bytes / POINT_BYTES;
+			for (long at = 0; at < points; at += chunkSize) {
+				int n = (int)Math.min(chunkSize, points - at);
+				IntBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, at * POINT_BYTES, (long)n * POINT_BYTES)
+						.order(byteOrder).asIntBuffer();
+				s.add(in, n);
+			}
+			return s.running;
+		}
+	}
+
+	//-----------------------------------------------------------
+	//  Hulls the n points of in and folds them into the running
+	//  hull. The octagon includes the running hull, so a point
+	//  inside it is inside the hull so far as well. The points
+	//  outside are copied, the hull code takes the int arrays of
+	//  a PointStore and a mapped window has none
+	//-----------------------------------------------------------
+	private void add(IntBuffer in, int n) {
+		AklToussaint.Octagon o = new AklToussaint.Octagon();
+		for (int i = 0; i < running.size(); i++) {
+			o.include(running.getX(i), running.getY(i));
+		}
+		for (int i = 0; i < n; i++) {
+			o.include(in.get(2*i), in.get(2*i + 1));
+		}
+		o.close();
+
+		chunk.clear();
+		for (int i = 0; i < n; i++) {
+			int px = in.get(2*i), py = in.get(2*i + 1);
+			if (!o.inside(px, py)) chunk.add(px, py);
+		}
+		fold(ConvexHull.findConvexHull(chunk));
+	}
+
+	//-----------------------------------------------------------
+	//  Takes the hull of the running hull and chunk's hull h as
+	//  the running hull. Both hulls are listed by x in linear
+	//  time, merged, and given to one pass of monotone chain. The
+	//  two may overlap in x, so they cannot be joined by the
+	//  tangents of ConvexHull's merge
+	//-----------------------------------------------------------
+	private void fold(int[] h) {
+		both.clear();
+		for (int i = 0; i < running.size(); i++) {
+			both.add(running.getX(i), running.getY(i));
+		}
+		int a = both.size();
+		for (int i = 0; i < h.length; i++) {
+			both.add(chunk.getX(h[i]), chunk.getY(h[i]));
+		}
+		int n = both.size();
+		if (byX.length < n + 1) {
+			byX = new int[n + 1];
+			merged = new int[n + 1];
+			folded = new int[n + 1];
+		}
+
+		// each hull by x in byX, then the two merged into merged, once each point
+		listByX(0, a, 0);
+		listByX(a, n, a);
+		int k = 0;
+		for (int i = 0, j = a; (i < a) || (j < n); ) {
+			int next;
+			if (j >= n) next = byX[i++];
+			else if (i >= a) next = byX[j++];
+			else next = (both.keyX(byX[i]) <= both.keyX(byX[j])) ? byX[i++] : byX[j++];
+
+			if ((k == 0) || (both.keyX(merged[k - 1]) != both.keyX(next))) merged[k++] = next;
+		}
+
+		int size = MonotoneChain.chain(both.getXs(), both.getYs(), merged, 0, k, folded);
+		// the running hull's points are in both now, so its store is refilled
+		running.clear();
+		for (int i = 0; i < size; i++) {
+			running.add(both.getX(folded[i]), both.getY(folded[i]));
+		}
+	}
+
+	//-----------------------------------------------------------
+	//  Lists both[lo..hi-1], a hull clockwise from its left most
+	//  point, by x then y into byX[at..]: the upper side up to
+	//  the right most point merged with the lower side backwards
+	//-----------------------------------------------------------
+	private void listByX(int lo, int hi, int at) {
+		if (hi <= lo) {
+			return;
+		}
+		int r = lo;
+		for (int i = lo + 1; i < hi; i++) {
+			if (both.keyX(i) > both.keyX(r)) r = i;
+		}
+
+		int i = lo, j = hi - 1;
+		while ((i <= r) || (j > r)) {
+			if (j <= r) byX[at++] = i++;
+			else if (i > r) byX[at++] = j--;
+			else byX[at++] = (both.keyX(i) < both.keyX(j)) ? i++ : j--;
+		}
+	}
+}
@@ -0,0 +1,83 @@
+import java.util.*;
+
+// times Fortune's sweep (VoronoiGenerator.sweep) on uniform and clustered sites, with
+// EventQueue and with the TreeSet queue it replaced side by side, run with
+//   java -Xmx4g SweepBenchmark [largest size]
+// the sizes are 100k, 1M and 10M sites, up to the largest size given (10M by default).
+// 10M sites need about 2.7G of heap for the sites, the queue, the beach line and the
+// half-edge list, and the TreeSet queue about 1G more for its event objects, run with a
+// smaller largest size where that is not available.
+// Each queue gets a new generator per input, reused for its runs, so only one holds its
+// buffers at a time. The best of a few runs is printed. On one core with -Xmx4g:
+//                      EventQueue   TreeSet queue
+//   uniform   x100k        226ms          459ms
+//   clustered x100k        198ms          522ms
+//   uniform   x1M         3827ms         7999ms
+//   clustered x1M         3429ms         6907ms
+//   uniform   x10M       63952ms       134450ms
+//   clustered x10M       49623ms       140426ms
+public class SweepBenchmark{
+	private static final int[] SIZES = {100000, 1000000, 10000000};
+
+	public static void main(String[] args){
+		int largest = (args.length > 0) ? Integer.parseInt(args[0]) : SIZES[SIZES.length - 1];
+		ClipWindow window = new ClipWindow(0, 0, 1280, 780);
+
+		for (int n : SIZES){
+			if (n > largest) break;
+			int runs = (n >= 10000000) ? 1 : (n >= 1000000) ? 3 : 8;
+
+			PointStore uniform = uniform(n, new Random(n));
+			print("uniform   x" + n, window, uniform, runs);
+			uniform = null;
+
+			PointStore clustered = clustered(n, new Random(n));
+			print("clustered x" + n, window, clustered, runs);
+		}
+	}
+
+	private static void print(String name, ClipWindow window, PointStore sites, int runs){
+		long ms = best(new VoronoiGenerator(window), sites, runs);
+		long treeMs = best(new VoronoiGenerator(window, new TreeSetEventQueue()), sites, runs);
+		System.out.println(name + ": " + ms + "ms, TreeSet queue " + treeMs + "ms");
+	}
+
+	// sites spread over a square with about 100 lattice points per site
+	private static PointStore uniform(int n, Random r){
+		int range = (int)Math.sqrt(100.0 * n);
+		PointStore ps = new PointStore(n);
+		for (int i = 0; i < n; i++){
+			ps.add(r.nextInt(range), r.nextInt(range));
+		}
+		return ps;
+	}
+
+	// the same square, with the sites in gaussian clusters of about 1000 sites each
+	private static PointStore clustered(int n, Random r){
+		int range = (int)Math.sqrt(100.0 * n);
+		int clusters = Math.max(1, n / 1000);
+		double spread = range / Math.sqrt(clusters) / 4;
+		int[] cx = new int[clusters], cy = new int[clusters];
+		for (int c = 0; c < clusters; c++){
+			cx[c] = r.nextInt(range);
+			cy[c] = r.nextInt(range);
+		}
+
+		PointStore ps = new PointStore(n);
+		for (int i = 0; i < n; i++){
+			int c = r.nextInt(clusters);
+			ps.add(cx[c] + (int)(r.nextGaussian() * spread), cy[c] + (int)(r.nextGaussian() * spread));
+		}
+		return ps;
+	}
+
+	private static long best(VoronoiGenerator generator, PointStore sites, int runs){
+		long best = Long.MAX_VALUE;
+		for (int k = 0; k < runs; k++){
+			long start = System.nanoTime();
+			generator.sweep(sites);
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return best / 1000000;
+	}
+}
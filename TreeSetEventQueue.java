@@ -0,0 +1,72 @@
+import java.util.*;
+
+// the event queue Fortune's sweep had before EventQueue, kept as a baseline for
+// SweepBenchmark only: every site and circle event is an object in one TreeSet ordered
+// by (y, x), and a false alarm is removed from the set in O(log N). Unlike the old queue
+// two circle events at the same point are both kept, so the sweep stays correct and the
+// two queues are timed on the same work. Such ties may be polled in another order than
+// EventQueue's, which only changes how a vertex of four or more sites is split
+class TreeSetEventQueue extends EventQueue{
+	private TreeSet<Event> Q = new TreeSet<Event>();
+
+	// the circle events by the id add returned, never reused within a sweep
+	private ArrayList<Event> circles = new ArrayList<Event>();
+
+	private static final class Event implements Comparable<Event>{
+		final double x, y;
+
+		// the site index, or the arc of a circle event
+		final int index;
+
+		// -1 for a site, else the id of the circle event
+		final int id;
+
+		Event(double x, double y, int index, int id){
+			this.x = x;
+			this.y = y;
+			this.index = index;
+			this.id = id;
+		}
+
+		// a site placed twice compares equal and is kept once, circle events go first on ties
+		public int compareTo(Event o){
+			if (y != o.y) return (y < o.y) ? -1 : 1;
+			if (x != o.x) return (x < o.x) ? -1 : 1;
+			return Integer.compare(o.id, id);
+		}
+	}
+
+	@Override
+	public void reset(PointStore sites){
+		Q.clear();
+		circles.clear();
+		for (int i = 0; i < sites.size(); i++){
+			Q.add(new Event(sites.getX(i), sites.getY(i), i, -1));
+		}
+	}
+
+	@Override
+	public boolean isEmpty(){ return Q.isEmpty(); }
+
+	@Override
+	public boolean nextIsSite(){ return !Q.isEmpty() && (Q.first().id < 0); }
+
+	@Override
+	public int pollSite(){ return Q.pollFirst().index; }
+
+	@Override
+	public int pollCircle(){ return Q.pollFirst().index; }
+
+	@Override
+	public int add(double x, double y, int arc){
+		Event e = new Event(x, y, arc, circles.size());
+		circles.add(e);
+		Q.add(e);
+		return e.id;
+	}
+
+	@Override
+	public void cancel(int e){
+		Q.remove(circles.get(e));
+	}
+}
@@ -0,0 +1,467 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// the cell of every site as a polygon cut to a clip window, read off a VoronoiDcel
+// polygons are index based: the corners of cell s are vertex[first[s]..first[s+1]-1],
+// indices into x and y. The voronoi vertices keep their DCEL index there, the points made
+// by the cut are added after them. Corners go around the cell so that the signed area is
+// positive (areaSign > 0 for every three of them in order), an empty cell has no corner.
+// Without a window an unbounded cell has no polygon and its area is infinite.
+// All buffers are reused by the next build
+public class VoronoiCells{
+	// areas are summed in blocks of this many cells, in parallel above two blocks
+	private static final int BLOCK = 4096;
+
+	// what a BlockTask does to its blocks
+	private static final int AREAS = 0, CENTROIDS = 1, TOTALS = 2;
+
+	private int cellCount;
+	private int[] first, vertex;
+	private int vertexCount, cornerCount;
+	private double[] x, y;
+	private double[] area;
+
+	// the polygon being cut, its points and the DCEL vertex of each point (-1 if made by the cut)
+	private double[] px, py, qx, qy;
+	private int[] ptag, qtag;
+	private int pn;
+
+	// where the last ray given to leaveBox left the box
+	private double rayX, rayY;
+
+	public VoronoiCells(){
+		first = new int[1];
+		vertex = new int[64];
+		x = new double[64];
+		y = new double[64];
+		area = new double[0];
+		px = new double[16];
+		py = new double[16];
+		qx = new double[16];
+		qy = new double[16];
+		ptag = new int[16];
+		qtag = new int[16];
+	}
+
+	public int getCellCount(){ return cellCount; }
+	public int getCornerCount(int s){ return first[s + 1] - first[s]; }
+	public int getCorner(int s, int i){ return vertex[first[s] + i]; }
+	public double getX(int v){ return x[v]; }
+	public double getY(int v){ return y[v]; }
+	public double getArea(int s){ return area[s]; }
+
+	// the polygons in compressed rows, see the class comment
+	public int[] getFirst(){ return first; }
+	public int[] getVertices(){ return vertex; }
+	public double[] getXs(){ return x; }
+	public double[] getYs(){ return y; }
+	public double[] getAreas(){ return area; }
+
+	//-----------------------------------------------------------
+	//  Cuts every cell of the diagram D of sites to window, O(N)
+	//  after the sweep. The areas are worked out last, spread
+	//  over the common fork-join pool for large inputs
+	//-----------------------------------------------------------
+	public void build(VoronoiDcel D, PointStore sites, ClipWindow window){
+		int n = sites.size();
+		cellCount = n;
+		if (first.length < n + 1) first = new int[n + 1];
+		if (area.length < n) area = new double[n];
+
+		// the voronoi vertices first, with their DCEL index
+		vertexCount = 0;
+		cornerCount = 0;
+		for (int v = 0; v < D.getVertexCount(); v++){
+			addVertex(D.getVertexX(v), D.getVertexY(v));
+		}
+
+		int[] order = null;
+		int[] rank = null;
+		if (D.getVertexCount() == 0 && n > 1){
+			// no vertex, the distinct sites lie on a line and every cell is cut by the
+			// bisectors with its neighbours along the line
+			order = sites.sortByX();
+			int m = sites.unique(order, n);
+			rank = new int[n];
+			Arrays.fill(rank, -1);
+			for (int i = 0; i < m; i++){
+				rank[order[i]] = i;
+			}
+			order = Arrays.copyOf(order, m);
+		}
+
+		for (int s = 0; s < n; s++){
+			first[s] = cornerCount;
+			if (order != null){
+				if (rank[s] >= 0) lineCell(sites, order, rank[s], window);
+				else pn = 0;
+			}else if (D.getCellEdge(s) >= 0){
+				cell(D, sites, s, window);
+			}else{
+				// a repeated site, the sweep left it without a cell
+				pn = (n == 1) ? windowPolygon(window) : 0;
+			}
+
+			// DCEL order is negative, the corners are stored the other way round
+			for (int i = pn - 1; i >= 0; i--){
+				int v = (ptag[i] >= 0) ? ptag[i] : addVertex(px[i], py[i]);
+				addCorner(v);
+			}
+			area[s] = (pn < 0) ? Double.POSITIVE_INFINITY : 0;
+		}
+		first[n] = cornerCount;
+
+		computeAreas();
+	}
+
+	// the whole window, for a single site
+	private int windowPolygon(ClipWindow window){
+		if (!window.isBounded()) return -1;
+		pn = 0;
+		addPoint(window.getMinX(), window.getMinY(), -1);
+		addPoint(window.getMinX(), window.getMaxY(), -1);
+		addPoint(window.getMaxX(), window.getMaxY(), -1);
+		addPoint(window.getMaxX(), window.getMinY(), -1);
+		return pn;
+	}
+
+	//-----------------------------------------------------------
+	//  The cell of s in the usual case. A bounded cell is the cycle
+	//  of its half-edges. An unbounded one is a chain from a half-
+	//  edge coming from infinity to one going there: it is closed
+	//  along the boundary of a box holding the window and all of
+	//  its vertices, and then cut to the window
+	//-----------------------------------------------------------
+	private void cell(VoronoiDcel D, PointStore sites, int s, ClipWindow window){
+		int h0 = D.getCellEdge(s);
+		int limit = D.getHalfEdgeCount();
+
+		// back to the start of the chain, or around the whole cycle
+		int start = h0;
+		for (int k = 0; k < limit && D.getPrev(start) >= 0 && D.getPrev(start) != h0; k++){
+			start = D.getPrev(start);
+		}
+		boolean bounded = D.getPrev(start) >= 0;
+		if (bounded) start = h0;
+
+		pn = 0;
+		int last = start;
+		for (int h = start, k = 0; h >= 0 && k < limit; k++){
+			if (D.getOrigin(h) >= 0) addPoint(D.getVertexX(D.getOrigin(h)), D.getVertexY(D.getOrigin(h)), D.getOrigin(h));
+			last = h;
+			h = D.getNext(h);
+			if (h == start) break;
+		}
+
+		if (!bounded){
+			if (!window.isBounded()){
+				pn = -1;
+				return;
+			}
+			closeAlongBox(D, sites, start, last, window);
+		}
+		if (window.isBounded() && !inside(window)) clipToWindow(window);
+	}
+
+	// whether every point of the polygon is in the window, most cells need no cut
+	private boolean inside(ClipWindow window){
+		for (int i = 0; i < pn; i++){
+			if ((px[i] < window.getMinX()) || (px[i] > window.getMaxX()) ||
+			    (py[i] < window.getMinY()) || (py[i] > window.getMaxY())) return false;
+		}
+		return true;
+	}
+
+	// the unbounded chain from the half-edge in to the half-edge out, its points from the
+	// origin of in's successor to the origin of out are in place, the closing points are
+	// added after them
+	private void closeAlongBox(VoronoiDcel D, PointStore sites, int in, int out, ClipWindow window){
+		// a box around the window and the cell's vertices, with some room
+		double minX = window.getMinX(), minY = window.getMinY();
+		double maxX = window.getMaxX(), maxY = window.getMaxY();
+		for (int i = 0; i < pn; i++){
+			minX = Math.min(minX, px[i]); maxX = Math.max(maxX, px[i]);
+			minY = Math.min(minY, py[i]); maxY = Math.max(maxY, py[i]);
+		}
+		double room = 1 + (maxX - minX) + (maxY - minY);
+		minX -= room; minY -= room;
+		maxX += room; maxY += room;
+		double w = maxX - minX, h = maxY - minY;
+
+		// where the two rays leave the box, and how far along its boundary that is
+		double outS = leaveBox(D, sites, out, minX, minY, maxX, maxY);
+		double outX = rayX, outY = rayY;
+		double inS = leaveBox(D, sites, in ^ 1, minX, minY, maxX, maxY);
+		double inX = rayX, inY = rayY;
+
+		// from out to in the boundary turns the same way as the cell, through the corners
+		// (minX, minY), (minX, maxY), (maxX, maxY), (maxX, minY) at 0, h, h + w, 2h + w
+		double perimeter = 2*(w + h);
+		double span = inS - outS;
+		if (span <= 0) span += perimeter;
+
+		addPoint(outX, outY, -1);
+		double[] cornerS = {0, h, h + w, 2*h + w};
+		double[] cornerX = {minX, minX, maxX, maxX};
+		double[] cornerY = {minY, maxY, maxY, minY};
+		int k = 0;
+		while ((k < 4) && (cornerS[k] <= outS)) k++;
+		for (int j = 0; j < 4; j++){
+			int c = (k + j) % 4;
+			double d = cornerS[c] - outS;
+			if (d <= 0) d += perimeter;
+			if (d >= span) break;
+			addPoint(cornerX[c], cornerY[c], -1);
+		}
+		addPoint(inX, inY, -1);
+	}
+
+	// the point where the ray of half-edge h, from its origin to infinity, leaves the box
+	// goes to rayX, rayY. Returns its position along the boundary
+	private double leaveBox(VoronoiDcel D, PointStore sites, int h, double minX, double minY, double maxX, double maxY){
+		int o = D.getOrigin(h);
+		int u = D.getSite(h), v = D.getSite(h ^ 1);
+		double ox = D.getVertexX(o), oy = D.getVertexY(o);
+		double dx = (double)sites.getY(v) - sites.getY(u);
+		double dy = (double)sites.getX(u) - sites.getX(v);
+
+		double tx = (dx > 0) ? (maxX - ox) / dx : ((dx < 0) ? (minX - ox) / dx : Double.POSITIVE_INFINITY);
+		double ty = (dy > 0) ? (maxY - oy) / dy : ((dy < 0) ? (minY - oy) / dy : Double.POSITIVE_INFINITY);
+		double w = maxX - minX, hgt = maxY - minY;
+
+		if (tx <= ty){
+			rayX = (dx > 0) ? maxX : minX;
+			rayY = Math.min(Math.max(oy + tx*dy, minY), maxY);
+			return (dx > 0) ? hgt + w + (maxY - rayY) : (rayY - minY);
+		}else{
+			rayY = (dy > 0) ? maxY : minY;
+			rayX = Math.min(Math.max(ox + ty*dx, minX), maxX);
+			return (dy > 0) ? hgt + (rayX - minX) : 2*hgt + w + (maxX - rayX);
+		}
+	}
+
+	// the cell of the k-th of the distinct colinear sites in order, the window cut by
+	// the bisectors with the sites before and after it
+	private void lineCell(PointStore sites, int[] order, int k, ClipWindow window){
+		if (windowPolygon(window) < 0){
+			pn = -1;
+			return;
+		}
+		int s = order[k];
+		if (k > 0) clipCloser(sites, s, order[k - 1]);
+		if (k + 1 < order.length) clipCloser(sites, s, order[k + 1]);
+	}
+
+	// keep the part of the polygon closer to site s than to site t
+	private void clipCloser(PointStore sites, int s, int t){
+		double ax = (double)sites.getX(t) - sites.getX(s);
+		double ay = (double)sites.getY(t) - sites.getY(s);
+		double mx = (sites.getX(s) + sites.getX(t)) / 2.0;
+		double my = (sites.getY(s) + sites.getY(t)) / 2.0;
+		clip(ax, ay, -(ax*mx + ay*my));
+	}
+
+	private void clipToWindow(ClipWindow window){
+		clip(-1, 0, window.getMinX());
+		clip(1, 0, -window.getMaxX());
+		clip(0, -1, window.getMinY());
+		clip(0, 1, -window.getMaxY());
+	}
+
+	//-----------------------------------------------------------
+	//  Sutherland-Hodgman, keeps the part of the polygon where
+	//  a*x + b*y + c <= 0
+	//-----------------------------------------------------------
+	private void clip(double a, double b, double c){
+		if (pn <= 0) return;
+		if (qx.length < 2*pn){
+			qx = new double[2*pn];
+			qy = new double[2*pn];
+			qtag = new int[2*pn];
+		}
+
+		int qn = 0;
+		for (int i = 0; i < pn; i++){
+			int j = (i + 1 == pn) ? 0 : i + 1;
+			double fi = a*px[i] + b*py[i] + c;
+			double fj = a*px[j] + b*py[j] + c;
+
+			if (fi <= 0){
+				qx[qn] = px[i]; qy[qn] = py[i]; qtag[qn] = ptag[i];
+				qn++;
+			}
+			if ((fi <= 0) != (fj <= 0)){
+				double t = fi / (fi - fj);
+				qx[qn] = px[i] + t*(px[j] - px[i]);
+				qy[qn] = py[i] + t*(py[j] - py[i]);
+				qtag[qn] = -1;
+				qn++;
+			}
+		}
+
+		double[] sx = px; px = qx; qx = sx;
+		double[] sy = py; py = qy; qy = sy;
+		int[] st = ptag; ptag = qtag; qtag = st;
+		pn = qn;
+	}
+
+	private void addPoint(double x, double y, int tag){
+		if (pn == px.length){
+			px = Arrays.copyOf(px, 2*pn);
+			py = Arrays.copyOf(py, 2*pn);
+			ptag = Arrays.copyOf(ptag, 2*pn);
+		}
+		px[pn] = x;
+		py[pn] = y;
+		ptag[pn] = tag;
+		pn++;
+	}
+
+	private int addVertex(double vx, double vy){
+		if (vertexCount == x.length){
+			x = Arrays.copyOf(x, 2*vertexCount);
+			y = Arrays.copyOf(y, 2*vertexCount);
+		}
+		x[vertexCount] = vx;
+		y[vertexCount] = vy;
+		return vertexCount++;
+	}
+
+	private void addCorner(int v){
+		if (cornerCount == vertex.length){
+			vertex = Arrays.copyOf(vertex, 2*cornerCount);
+		}
+		vertex[cornerCount++] = v;
+	}
+
+	//-----------------------------------------------------------
+	//  Shoelace area of every polygon, the cells are independent
+	//  so large inputs are spread over the common pool in blocks
+	//-----------------------------------------------------------
+	private void computeAreas(){
+		int blocks = (cellCount + BLOCK - 1) / BLOCK;
+		if (blocks > 2){
+			ForkJoinPool.commonPool().invoke(new BlockTask(AREAS, 0, blocks, null, null));
+		}else{
+			areaBlock(0, cellCount);
+		}
+	}
+
+	private void areaBlock(int from, int to){
+		for (int s = from; s < to; s++){
+			if (Double.isInfinite(area[s])) continue;
+
+			int a = first[s], m = first[s + 1] - a;
+			double sum = 0;
+			if (m >= 3){
+				// relative to the first corner, the coordinates may be large
+				double ox = x[vertex[a]], oy = y[vertex[a]];
+				for (int i = 1; i + 1 < m; i++){
+					int p = vertex[a + i], q = vertex[a + i + 1];
+					sum += (x[p] - ox)*(y[q] - oy) - (x[q] - ox)*(y[p] - oy);
+				}
+			}
+			area[s] = sum / 2;
+		}
+	}
+
+	//-----------------------------------------------------------
+	//  Centroid of every cell into cx[s], cy[s], NaN for a cell
+	//  without area. Spread over the common pool in blocks like
+	//  the areas, which it needs to be built
+	//-----------------------------------------------------------
+	public void getCentroids(double[] cx, double[] cy){
+		int blocks = (cellCount + BLOCK - 1) / BLOCK;
+		if (blocks > 2){
+			ForkJoinPool.commonPool().invoke(new BlockTask(CENTROIDS, 0, blocks, cx, cy));
+		}else{
+			centroidBlock(0, cellCount, cx, cy);
+		}
+	}
+
+	private void centroidBlock(int from, int to, double[] cx, double[] cy){
+		for (int s = from; s < to; s++){
+			if (!(area[s] > 0) || Double.isInfinite(area[s])){
+				cx[s] = cy[s] = Double.NaN;
+				continue;
+			}
+
+			// triangle fan from the first corner, each triangle weighted by its area
+			int a = first[s], m = first[s + 1] - a;
+			double ox = x[vertex[a]], oy = y[vertex[a]];
+			double sx = 0, sy = 0;
+			for (int i = 1; i + 1 < m; i++){
+				int p = vertex[a + i], q = vertex[a + i + 1];
+				double ux = x[p] - ox, uy = y[p] - oy;
+				double vx = x[q] - ox, vy = y[q] - oy;
+				double w = ux*vy - vx*uy;
+				sx += w * (ux + vx);
+				sy += w * (uy + vy);
+			}
+			// the weights add up to twice the area, a triangle's centroid is a third of its corners
+			cx[s] = ox + sx / (6 * area[s]);
+			cy[s] = oy + sy / (6 * area[s]);
+		}
+	}
+
+	//-----------------------------------------------------------
+	//  Sum of the areas of all cells, the area of the window when
+	//  every cell is bounded by it. Summed by blocks in parallel,
+	//  the blocks are added in order so the result is repeatable
+	//-----------------------------------------------------------
+	public double getTotalArea(){
+		int blocks = (cellCount + BLOCK - 1) / BLOCK;
+		double[] partial = new double[blocks];
+		if (blocks > 0) ForkJoinPool.commonPool().invoke(new BlockTask(TOTALS, 0, blocks, partial, null));
+
+		double total = 0;
+		for (int b = 0; b < blocks; b++){
+			total += partial[b];
+		}
+		return total;
+	}
+
+	// partial[b] = the sum of the areas in block b
+	private void totalBlock(int b, double[] partial){
+		double sum = 0;
+		for (int s = b*BLOCK, to = Math.min(cellCount, (b + 1)*BLOCK); s < to; s++){
+			sum += area[s];
+		}
+		partial[b] = sum;
+	}
+
+	//-----------------------------------------------------------
+	//  Blocks from..to-1 as fork-join tasks, halved until one
+	//  block is left. The blocks write disjoint parts of their
+	//  arrays, for TOTALS a is partial, for CENTROIDS a and b are
+	//  cx and cy
+	//-----------------------------------------------------------
+	private class BlockTask extends RecursiveAction{
+		private static final long serialVersionUID = 1L;
+
+		private final int kind, from, to;
+		private final double[] a, b;
+
+		BlockTask(int kind, int from, int to, double[] a, double[] b){
+			this.kind = kind;
+			this.from = from;
+			this.to = to;
+			this.a = a;
+			this.b = b;
+		}
+
+		protected void compute(){
+			if (to - from > 1){
+				int mid = (from + to) >>> 1;
+				invokeAll(new BlockTask(kind, from, mid, a, b), new BlockTask(kind, mid, to, a, b));
+				return;
+			}
+
+			int lo = from*BLOCK, hi = Math.min(cellCount, (from + 1)*BLOCK);
+			if (kind == AREAS) areaBlock(lo, hi);
+			else if (kind == CENTROIDS) centroidBlock(lo, hi, a, b);
+			else totalBlock(from, a);
+		}
+	}
+}
@@ -0,0 +1,158 @@
+import java.util.*;
+
+// doubly-connected edge list of a voronoi diagram, stored in flat arrays
+// half-edges 2k and 2k+1 are twins and together form the k-th voronoi edge,
+// a half-edge borders the cell of its site and is linked to the next/previous
+// half-edge around that cell. An origin of -1 means the half-edge comes from infinity
+public class VoronoiDcel{
+	// vertices, vertex i is the center of the circle through sites vertexSite[3i..3i+2],
+	// listed as the arcs (pred, gamma, succ) of its circle event so that areaSign of the
+	// three sites is always positive. Each vertex is one triangle of the delaunay triangulation
+	private int vertexCount;
+	private double[] vertexX, vertexY;
+	private int[] vertexSite;
+
+	// half-edges
+	private int halfEdgeCount;
+	private int[] origin, next, prev, site;
+
+	// one half-edge on the boundary of every site's cell, -1 for none
+	private int[] cellEdge;
+
+	public VoronoiDcel(){
+		vertexX = new double[16];
+		vertexY = new double[16];
+		vertexSite = new int[48];
+
+		origin = new int[32];
+		next = new int[32];
+		prev = new int[32];
+		site = new int[32];
+
+		cellEdge = new int[0];
+	}
+
+	// forget the previous diagram, keeping the allocated storage
+	public void reset(int siteCount){
+		vertexCount = 0;
+		halfEdgeCount = 0;
+
+		if (cellEdge.length < siteCount){
+			cellEdge = new int[siteCount];
+		}
+		Arrays.fill(cellEdge, 0, siteCount, -1);
+	}
+
+	public int addVertex(double x, double y, int a, int b, int c){
+		if (vertexCount == vertexX.length){
+			int cap = vertexCount * 2;
+			vertexX = Arrays.copyOf(vertexX, cap);
+			vertexY = Arrays.copyOf(vertexY, cap);
+			vertexSite = Arrays.copyOf(vertexSite, 3*cap);
+		}
+
+		vertexX[vertexCount] = x;
+		vertexY[vertexCount] = y;
+		vertexSite[3*vertexCount] = a;
+		vertexSite[3*vertexCount + 1] = b;
+		vertexSite[3*vertexCount + 2] = c;
+		return vertexCount++;
+	}
+
+	// add the bisector of two sites, returns the half-edge bordering leftSite,
+	// its twin borders rightSite. Both ends start at infinity
+	public int addEdge(int leftSite, int rightSite){
+		if (halfEdgeCount == origin.length){
+			int cap = halfEdgeCount * 2;
+			origin = Arrays.copyOf(origin, cap);
+			next = Arrays.copyOf(next, cap);
+			prev = Arrays.copyOf(prev, cap);
+			site = Arrays.copyOf(site, cap);
+		}
+
+		int h = halfEdgeCount;
+		halfEdgeCount += 2;
+
+		origin[h] = origin[h + 1] = -1;
+		next[h] = next[h + 1] = -1;
+		prev[h] = prev[h + 1] = -1;
+		site[h] = leftSite;
+		site[h + 1] = rightSite;
+
+		if (cellEdge[leftSite] < 0) cellEdge[leftSite] = h;
+		if (cellEdge[rightSite] < 0) cellEdge[rightSite] = h + 1;
+		return h;
+	}
+
+	//-----------------------------------------------------------
+	//  Rebuilds the diagram as the dual of a delaunay triangulation
+	//  of sites, laid out the way the sweep lays it out: vertex t
+	//  is the circumcenter of triangle t, and half-edges go around
+	//  their cell the way the sweep links them
+	//-----------------------------------------------------------
+	public void build(DelaunayTriangulation dt, PointStore sites){
+		reset(sites.size());
+		int m = dt.getTriangleCount();
+		int[] tri = dt.getTriangles();
+		int[] nb = dt.getNeighbors();
+
+		double[] center = new double[2];
+		for (int t = 0; t < m; t++){
+			int a = tri[3*t], b = tri[3*t + 1], c = tri[3*t + 2];
+			MathHelper.getCircleCenter(sites.getX(a), sites.getY(a), sites.getX(b), sites.getY(b), sites.getX(c), sites.getY(c), center);
+			addVertex(center[0], center[1], a, b, c);
+		}
+
+		// one voronoi edge per delaunay edge, edgeOf[3t+i] is the half-edge bordering
+		// corner i of t on the side of edge i, it starts at vertex t
+		int[] edgeOf = new int[3*m];
+		for (int t = 0; t < m; t++){
+			for (int i = 0; i < 3; i++){
+				int n = nb[3*t + i];
+				if ((n >= 0) && (n < t)) continue;
+
+				int h = addEdge(tri[3*t + i], tri[3*t + (i + 1) % 3]);
+				edgeOf[3*t + i] = h;
+				if (n >= 0){
+					for (int j = 0; j < 3; j++){
+						if (nb[3*n + j] == t) edgeOf[3*n + j] = h ^ 1;
+					}
+				}
+			}
+		}
+
+		for (int t = 0; t < m; t++){
+			for (int i = 0; i < 3; i++){
+				setOrigin(edgeOf[3*t + i], t);
+
+				// around the cell of corner i, the edge before i ends at t where edge i starts
+				link(edgeOf[3*t + (i + 2) % 3] ^ 1, edgeOf[3*t + i]);
+			}
+		}
+	}
+
+	public void setOrigin(int h, int v){
+		origin[h] = v;
+	}
+
+	// a is followed by b around their common cell
+	public void link(int a, int b){
+		next[a] = b;
+		prev[b] = a;
+	}
+
+	public int getVertexCount(){ return vertexCount; }
+	public double getVertexX(int v){ return vertexX[v]; }
+	public double getVertexY(int v){ return vertexY[v]; }
+	public int getVertexSite(int v, int i){ return vertexSite[3*v + i]; }
+
+	public int getEdgeCount(){ return halfEdgeCount / 2; }
+	public int getHalfEdgeCount(){ return halfEdgeCount; }
+	public int getTwin(int h){ return h ^ 1; }
+	public int getOrigin(int h){ return origin[h]; }
+	public int getDestination(int h){ return origin[h ^ 1]; }
+	public int getNext(int h){ return next[h]; }
+	public int getPrev(int h){ return prev[h]; }
+	public int getSite(int h){ return site[h]; }
+	public int getCellEdge(int s){ return cellEdge[s]; }
+}
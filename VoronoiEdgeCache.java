@@ -0,0 +1,114 @@
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+// the edges of an IncrementalVoronoi cut to its clip window, kept from one insertion to
+// the next. The segments are stored by the triangle slot whose emitEdges(t, sink) gives
+// them, at most one per edge of the triangle, so update only cuts the edges of the slots
+// the diagram lists as changed: about the number of triangles an insertion replaced.
+// While the sites are all colinear there are no slots, the few lines there are get cut
+// again on every update
+public class VoronoiEdgeCache implements VoronoiEdgeSink{
+	// floats per slot: three segments of x1, y1, x2, y2
+	private static final int SLOT_STRIDE = 12;
+
+	// segments of slot t from SLOT_STRIDE*t, count[t] of them
+	private float[] segments;
+	private int[] count;
+	private int slots;
+
+	// the lines of colinear sites
+	private FloatBufferEdgeSink lines;
+
+	// the window the segments are cut to, and the slot cut at the moment
+	private ClipWindow window;
+	private int current;
+
+	public VoronoiEdgeCache(){
+		segments = new float[SLOT_STRIDE*16];
+		count = new int[16];
+		lines = new FloatBufferEdgeSink(16);
+	}
+
+	public void clear(){
+		slots = 0;
+		window = null;
+		lines.clear();
+	}
+
+	//-----------------------------------------------------------
+	//  Cuts the edges of the slots v changed since the last call
+	//  again, or all of them when the window is not the same, and
+	//  clears v's changes
+	//-----------------------------------------------------------
+	public void update(IncrementalVoronoi v){
+		lines.clear();
+		if (!v.hasTriangles()){
+			slots = 0;
+			v.emitEdges(v.getClipWindow().clipping(lines));
+			v.clearChanged();
+			return;
+		}
+
+		int n = v.getTriangleSlots();
+		if (n < slots){
+			// v was cleared since, nothing kept is of its diagram
+			slots = 0;
+			window = null;
+		}
+		if (count.length < n){
+			count = Arrays.copyOf(count, 2*n);
+			segments = Arrays.copyOf(segments, SLOT_STRIDE*2*n);
+		}
+		while (slots < n) count[slots++] = 0;
+
+		VoronoiEdgeSink clipper = v.getClipWindow().clipping(this);
+		if (window != v.getClipWindow()){
+			window = v.getClipWindow();
+			for (int t = 0; t < n; t++){
+				cut(v, t, clipper);
+			}
+		}else{
+			for (int k = 0; k < v.getChangedCount(); k++){
+				cut(v, v.getChanged(k), clipper);
+			}
+		}
+		v.clearChanged();
+	}
+
+	private void cut(IncrementalVoronoi v, int t, VoronoiEdgeSink clipper){
+		current = t;
+		count[t] = 0;
+		v.emitEdges(t, clipper);
+	}
+
+	//-----------------------------------------------------------
+	//  Reading the segments: slot t has getCount(t) of them, the
+	//  j'th at SLOT_STRIDE*t + 4*j of getSegments(), as x1, y1,
+	//  x2, y2. The colinear lines are in getLines() instead
+	//-----------------------------------------------------------
+	public int getSlotCount(){ return slots; }
+	public int getCount(int t){ return count[t]; }
+	public float[] getSegments(){ return segments; }
+	public static int offset(int t, int j){ return SLOT_STRIDE*t + 4*j; }
+
+	// in write mode like FloatBufferEdgeSink's, position() floats
+	public FloatBuffer getLines(){ return lines.getEdges(); }
+
+	//-----------------------------------------------------------
+	//  What the clipping sink hands on for the current slot, a
+	//  ray only reaches here without a window and has no segment
+	//-----------------------------------------------------------
+	public void vertex(double x, double y){
+	}
+
+	public void edge(double x1, double y1, double x2, double y2){
+		int o = offset(current, count[current]++);
+		segments[o] = (float)x1;
+		segments[o + 1] = (float)y1;
+		segments[o + 2] = (float)x2;
+		segments[o + 3] = (float)y2;
+	}
+
+	public void ray(double x, double y, double dx, double dy){
+	}
+}
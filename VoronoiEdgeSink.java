@@ -0,0 +1,14 @@
+// receives a voronoi diagram piece by piece as primitive coordinates, each piece as soon
+// as it is final, so the diagram never has to be held as a list of objects. Every vertex,
+// edge and ray is given exactly once
+public interface VoronoiEdgeSink{
+	// a voronoi vertex
+	void vertex(double x, double y);
+
+	// a finite edge between two voronoi vertices
+	void edge(double x1, double y1, double x2, double y2);
+
+	// an edge from (x, y) going to infinity in the direction (dx, dy). A whole bisector
+	// without any vertex comes as two opposite rays from the midpoint of its sites
+	void ray(double x, double y, double dx, double dy);
+}
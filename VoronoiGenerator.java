@@ -1,194 +1,247 @@
 import java.util.*;
-import javax.swing.JPanel;
-import javax.swing.JLabel;
-import javax.swing.JOptionPane;
 import java.awt.*;
 import java.awt.geom.Line2D;
-import java.awt.event.*;
 
-// represent a vertex in voronoi diagram
-class Vertex {
-	Point point;
-	Point[] corr = new Point[3];
-	
-	public Vertex(Point point, Point a, Point b, Point c){
-		this.point = point;
-		corr[0] = a;
-		corr[1] = b;
-		corr[2] = c;
-	}
-}
-
-class VoronoiEdge {
-	Vertex[] endPoint;
-	private int pointer;
-
-	public VoronoiEdge(Vertex a, Vertex b) {
-		endPoint = new Vertex[2];
-		endPoint[0] = a;
-		endPoint[1] = b;
+// Fortune's sweep. Every instance owns its sweep state and keeps the queue and
+// edge list storage between calls, so one instance must not be shared by two
+// threads at once, but any number of instances can run concurrently
+public class VoronoiGenerator{
+	// one generator per thread, used by the static getVoronoiDiagram
+	private static final ThreadLocal<VoronoiGenerator> pool = new ThreadLocal<VoronoiGenerator>(){
+		@Override
+		protected VoronoiGenerator initialValue(){
+			return new VoronoiGenerator();
+		}
+	};
+	
+	// event queue
+	private EventQueue Q;
+	
+	// status of line sweep
+	private ModifiedAvlTree T;
 
-		pointer = 0;
-		if(a != null) pointer++;
-		if(b != null) pointer++;
+	// the diagram built by the last sweep
+	private VoronoiDcel D;
+	
+	// reused copy of the sites given as points
+	private PointStore sites;
+	
+	// dual of the last diagram, built on request
+	private DelaunayTriangulation triangulation;
+	
+	// cells of the last diagram, built on request
+	private VoronoiCells cells;
+	
+	// the last swept sites, getEdges reads their coordinates
+	private PointStore swept;
+	
+	// edges and clipped segments of the last diagram, reused between calls
+	private double[] edges, clipped;
+	
+	// compute cuts the diagram to this window
+	private ClipWindow window;
+	
+	public VoronoiGenerator(){
+		this(1280, 780);
 	}
-
-	public VoronoiEdge(){ this(null, null); }
-	public VoronoiEdge(Vertex a){ this(a, null); }
-
-	public void addEndPoint(Vertex a) {
-		if(pointer > 1) return;
-		endPoint[pointer++] = a;
+	
+	public VoronoiGenerator(int width, int height){
+		this(new ClipWindow(0, 0, width, height));
 	}
-}
-
-class Pair {
-	Point first, second;
 	
-	public Pair(Point first, Point second) {
-		this.first = first;
-		this.second = second;
+	public VoronoiGenerator(ClipWindow window){
+		this(window, new EventQueue());
 	}
 	
-	@Override
-	public boolean equals(Object other) {
-		if(!(other instanceof Pair)) return false;
-		Pair o = (Pair) other;
-
-		return(this.first.equals(o.first) && this.second.equals(o.second));
+	// with another queue, SweepBenchmark times its TreeSet baseline this way
+	VoronoiGenerator(ClipWindow window, EventQueue Q){
+		this.window = window;
+		
+		this.Q = Q;
+		T = new ModifiedAvlTree();
+		D = new VoronoiDcel();
+		sites = new PointStore();
+		swept = sites;
+		triangulation = new DelaunayTriangulation();
+		cells = new VoronoiCells();
+		edges = new double[0];
+		clipped = new double[0];
+	}
+	
+	public ClipWindow getClipWindow(){ return window; }
+	public void setClipWindow(ClipWindow window){ this.window = window; }
+	
+	// the calling thread's pooled generator, back-to-back calls reuse its buffers
+	public static VoronoiGenerator forCurrentThread(){
+		return pool.get();
 	}
 
-	@Override
-	public int hashCode() {
-		return first.hashCode() * 234231 + second.hashCode() * 42391;
+	// get the voronoi diagram, using the calling thread's pooled generator
+	public static ArrayList<Line2D.Double> getVoronoiDiagram(ArrayList<Point> pointList) {
+		return forCurrentThread().compute(pointList);
 	}
-}
 
-public class VoronoiGenerator{
-	// event queue
-	private static TreeSet<EventPoint> Q;
+	// get the voronoi diagram as line segments cut to the clip window, a thin adapter
+	// over sweep(PointStore). Without a window the rays and lines have no finite form
+	// and are left out, getEdges still has them
+	public ArrayList<Line2D.Double> compute(ArrayList<Point> pointList) {
+		sites.clear();
+		sites.addAll(pointList);
+		sweep(sites);
+		
+		int count = D.getEdgeCount();
+		double[] edges = getEdges();
+		if (clipped.length < ClipWindow.SEGMENT_STRIDE*count){
+			clipped = new double[ClipWindow.SEGMENT_STRIDE*count];
+		}
+		int kept = window.clip(edges, count, clipped);
+		
+		ArrayList<Line2D.Double> ret = new ArrayList<Line2D.Double>(kept);
+		for (int k = 0; k < kept; k++){
+			int o = ClipWindow.SEGMENT_STRIDE*k;
+			ret.add(new Line2D.Double(clipped[o], clipped[o + 1], clipped[o + 2], clipped[o + 3]));
+		}
+		return ret;
+	}
 	
-	// status of line sweep
-	private static ModifiedAvlTree T;
-
-	// set to store every Voronoi Edge formed so far
-	private static HashMap<Pair, VoronoiEdge> H;
+	// the edges of the last sweep in the parametric form of ClipWindow, one per edge of the
+	// DCEL and in the same order. Rays and lines are exact, nothing is cut. The buffer
+	// belongs to this generator and is overwritten by the next call
+	public double[] getEdges() {
+		int count = D.getEdgeCount();
+		if (edges.length < ClipWindow.EDGE_STRIDE*count){
+			edges = new double[ClipWindow.EDGE_STRIDE*count];
+		}
+		int[] px = swept.getXs();
+		int[] py = swept.getYs();
+		
+		// every bisector is one edge of the DCEL, read them in O(N)
+		for (int k = 0, e = 0; k < count; k++, e += ClipWindow.EDGE_STRIDE){
+			int h = 2*k;
+			int a = D.getOrigin(h);
+			int b = D.getDestination(h);
+			int u = D.getSite(h);
+			int v = D.getSite(D.getTwin(h));
+			
+			if (a >= 0 && b >= 0){
+				// an ordinary edge
+				edges[e] = D.getVertexX(a);
+				edges[e + 1] = D.getVertexY(a);
+				edges[e + 2] = D.getVertexX(b) - D.getVertexX(a);
+				edges[e + 3] = D.getVertexY(b) - D.getVertexY(a);
+				edges[e + 4] = 0;
+				edges[e + 5] = 1;
+			}else if (a < 0 && b < 0){
+				// a line, not line segment
+				edges[e] = (px[u] + px[v]) / 2.0;
+				edges[e + 1] = (py[u] + py[v]) / 2.0;
+				edges[e + 2] = (double)py[u] - py[v];
+				edges[e + 3] = (double)px[v] - px[u];
+				edges[e + 4] = Double.NEGATIVE_INFINITY;
+				edges[e + 5] = Double.POSITIVE_INFINITY;
+			}else{
+				// from voronoi vertex towards infinity, the breakpoint (v, u) was still
+				// alive at the end of the sweep when only h has its origin, (u, v) otherwise
+				int p = (a >= 0) ? a : b;
+				int sign = (a >= 0) ? 1 : -1;
+				edges[e] = D.getVertexX(p);
+				edges[e + 1] = D.getVertexY(p);
+				edges[e + 2] = sign * ((double)py[v] - py[u]);
+				edges[e + 3] = sign * ((double)px[u] - px[v]);
+				edges[e + 4] = 0;
+				edges[e + 5] = Double.POSITIVE_INFINITY;
+			}
+		}
+		
+		return edges;
+	}
 	
-	// bounding box size
-	private static int width = 1280;
-	private static int height = 780;
-
-	// get the voronoi diagram
-	public static ArrayList<Line2D.Double> getVoronoiDiagram(ArrayList<Point> pointList) {
+	// run Fortune's sweep over the sites, returns the diagram as a half-edge list whose
+	// cells and vertices refer to site indices. The list belongs to this generator and is
+	// overwritten by the next sweep
+	public VoronoiDcel sweep(PointStore sites) {
+		return sweep(sites, null);
+	}
+	
+	// the same sweep, also handing the diagram to sink piece by piece: every vertex and
+	// finite edge as soon as the sweep finishes it, and the rays once it is over.
+	// Nothing is cut, wrap the sink with ClipWindow.clipping for that
+	public VoronoiDcel sweep(PointStore sites, VoronoiEdgeSink sink) {
 		// init
-		ArrayList<Line2D.Double> ret = new ArrayList<Line2D.Double>();
-		ArrayList<Vertex> vertex = new ArrayList<Vertex>();
-		T = new ModifiedAvlTree();
-		Q = new TreeSet<EventPoint>();
-		H = new HashMap<Pair, VoronoiEdge>();
+		swept = sites;
+		T.reset(sites, sink);
+		D.reset(sites.size());
 		
-		// adds site events
-		for (int i = 0; i < pointList.size(); i++){
-			Q.add(new SiteEventPoint(pointList.get(i)));
-		}
+		// site events are sorted once here
+		Q.reset(sites);
 		
 		// do the sweep in O(N log N)
 		while (!Q.isEmpty()) {
-			EventPoint u = Q.pollFirst();
-			
-			if (u instanceof SiteEventPoint){
+			if (Q.nextIsSite()){
 				// a site event
+				int i = Q.pollSite();
 				if (T.isEmpty()){
-					T.setRoot(new LeafNode(u.point, null, null));	
+					T.setRoot(i);
 				}else{
-					T.splitArcAndHandleQueue(u.point, Q);
+					T.splitArcAndHandleQueue(i, Q, D);
 				}
 			}else{
 				// a circle event
-				CircleEventPoint nu = (CircleEventPoint)u;
+				int gamma = Q.pollCircle();
 				
-				T.removeArc(nu.gamma, Q, H, vertex);
+				T.removeArc(gamma, Q, D);
 			}
-			
-			//T.print();
 		}
 		
-		// construct edges (hashMap implementation) in O(N)
-		Iterator<Pair> it = H.keySet().iterator();
-		while(it.hasNext()) {
-			Pair pp = it.next();
-			VoronoiEdge e = H.get(pp);
-			
-			if (e != null){
-				if(e.endPoint[0] != null && e.endPoint[1] != null){
-					// an ordinary edge
-					ret.add(new Line2D.Double(e.endPoint[0].point.x, e.endPoint[0].point.y,
-											  e.endPoint[1].point.x, e.endPoint[1].point.y));
-					
-					H.put(new Pair(pp.second, pp.first), null);
-				}
-			}
-		}
-		
-		// create infinity half-edges in O(N)
-		ArrayList<InternalNode> infLine = T.getListOfInternalNode();
-		
-		// store some probably incomplete vertex
-		HashMap<Pair, Vertex> I = new HashMap<Pair, Vertex>();
-		for (int k = 0; k < vertex.size(); k++){
-			for (int i = 0; i < 3; i++){
-				for (int j = 0; j < 3; j++){
-					Vertex v = vertex.get(k);
-					I.put(new Pair(v.corr[i], v.corr[j]), v);
-				}
-			}
-		}
+		if (sink != null) emitUnbounded(sink);
+		return D;
+	}
+	
+	// the edges still reaching infinity once the sweep is over, the same rays and lines
+	// as getEdges gives, a line as two rays from the midpoint of its sites
+	private void emitUnbounded(VoronoiEdgeSink sink) {
+		int[] px = swept.getXs();
+		int[] py = swept.getYs();
 		
-		for (InternalNode e : infLine){
-			Point u = e.leftFocus;
-			Point v = e.rightFocus;
+		for (int k = 0, count = D.getEdgeCount(); k < count; k++){
+			int h = 2*k;
+			int a = D.getOrigin(h);
+			int b = D.getDestination(h);
+			if (a >= 0 && b >= 0) continue;
 			
-			// from voronoi vertex towards mid, infinitely
-			Vertex p = I.get(new Pair(u, v));
-			
-			if (p == null){
-				// a line, not line segment
-				Point mid = MathHelper.getMidPoint(u, v);
-				int gradx = u.y - v.y;
-				int grady = v.x - u.x;
-				int t = 2000;
-				ret.add(MathHelper.boundBox(width, height, new Point(mid.x - t*gradx, mid.y - t*grady), new Point(mid.x + t*gradx, mid.y + t*grady)));
+			int u = D.getSite(h);
+			int v = D.getSite(D.getTwin(h));
+			if (a < 0 && b < 0){
+				double mx = (px[u] + px[v]) / 2.0;
+				double my = (py[u] + py[v]) / 2.0;
+				sink.ray(mx, my, (double)py[u] - py[v], (double)px[v] - px[u]);
+				sink.ray(mx, my, (double)py[v] - py[u], (double)px[u] - px[v]);
 			}else{
-				for (int i = 0; i < 3; i++){
-					for (int j = 0; j < 3; j++){
-						if ((u == p.corr[i]) && (v == p.corr[j])){
-							Point mid1 = MathHelper.getMidPoint(p.corr[i], p.corr[j]);
-						
-							// find other so {i} U {j} U {k} = {0,1,2}
-							int k = 3 - i - j;
-							Point mid2 = MathHelper.getMidPoint(p.corr[i], p.corr[k]);
-							Point mid3 = MathHelper.getMidPoint(p.corr[j], p.corr[k]);
-						
-							int t = 2000;
-							int gradx = mid1.x - p.point.x;
-							int grady = mid1.y - p.point.y;
-						
-							int ar1 = MathHelper.areaSign(mid2, p.point, mid1);
-							int ar2 = MathHelper.areaSign(mid2, p.point, mid3);
-						
-							if (!MathHelper.isBow(p.corr[i],p.corr[j],p.corr[k]) && 
-							    !MathHelper.isInside(p.point, p.corr[0], p.corr[1], p.corr[2])){
-								gradx *= -1;
-								grady *= -1;
-							}
-						
-							ret.add(MathHelper.boundBox(width, height, new Point(p.point.x, p.point.y), new Point(p.point.x + t*gradx, p.point.y + t*grady)));
-						}		
-					}
-				}
+				int p = (a >= 0) ? a : b;
+				int sign = (a >= 0) ? 1 : -1;
+				sink.ray(D.getVertexX(p), D.getVertexY(p), sign * ((double)py[v] - py[u]), sign * ((double)px[u] - px[v]));
 			}
 		}
-		
-		return ret;
+	}
+	
+	// the delaunay triangulation of the sites, taken from the same sweep as the voronoi
+	// diagram. It belongs to this generator and is overwritten by the next call
+	public DelaunayTriangulation getDelaunayTriangulation(PointStore sites) {
+		sweep(sites);
+		triangulation.build(D);
+		return triangulation;
+	}
+	
+	// the cell of every site cut to the clip window, as polygons with their areas. The
+	// cells belong to this generator and are overwritten by the next call
+	public VoronoiCells getCells(PointStore sites) {
+		sweep(sites);
+		cells.build(D, sites, window);
+		return cells;
+	}
+	
+	// the half-edge structure of the last computed diagram, overwritten by the next sweep
+	public VoronoiDcel getDcel(){
+		return D;
 	}
 }
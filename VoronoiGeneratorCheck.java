@@ -0,0 +1,86 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+// stress check of reused and pooled VoronoiGenerator instances, run with
+//   java VoronoiGeneratorCheck [seed]
+// every input is swept once by a fresh generator. One generator reused for all of them in
+// a shuffled order, and the pooled generators of many threads sweeping them at once, have
+// to give exactly the same edges. Exits with status 1 on the first mismatch
+public class VoronoiGeneratorCheck{
+	private static final int THREADS = 8;
+	private static final int ROUNDS = 4;
+
+	public static void main(String[] args) throws Exception{
+		long seed = (args.length > 0) ? Long.parseLong(args[0]) : 1;
+		Random r = new Random(seed);
+
+		// inputs of every size, with repeats, collinear runs and tiny ones
+		final PointStore[] input = new PointStore[300];
+		for (int i = 0; i < input.length; i++){
+			PointStore ps = new PointStore();
+			int n = (i < 10) ? i : ((i % 10 == 0) ? 2000 + r.nextInt(3000) : r.nextInt(300));
+			int range = (i % 3 == 0) ? 20 : 1000;
+			for (int k = 0; k < n; k++){
+				if (i % 7 == 0) ps.add(r.nextInt(range), 100);
+				else ps.add(r.nextInt(range), r.nextInt(range));
+			}
+			input[i] = ps;
+		}
+
+		// fresh generator for every input
+		final double[][] expected = new double[input.length][];
+		for (int i = 0; i < input.length; i++){
+			expected[i] = edges(new VoronoiGenerator(), input[i]);
+		}
+
+		// one generator, back to back
+		VoronoiGenerator reused = new VoronoiGenerator();
+		List<Integer> order = new ArrayList<Integer>();
+		for (int i = 0; i < input.length; i++){
+			order.add(i);
+		}
+		for (int round = 0; round < ROUNDS; round++){
+			Collections.shuffle(order, r);
+			for (int i : order){
+				check("reused, input " + i, expected[i], edges(reused, input[i]));
+			}
+		}
+
+		// pooled generators of many threads at once
+		ExecutorService workers = Executors.newFixedThreadPool(THREADS);
+		List<Future<String>> results = new ArrayList<Future<String>>();
+		for (int round = 0; round < ROUNDS; round++){
+			Collections.shuffle(order, r);
+			for (final int i : order){
+				results.add(workers.submit(new Callable<String>(){
+					public String call(){
+						double[] got = edges(VoronoiGenerator.forCurrentThread(), input[i]);
+						return Arrays.equals(expected[i], got) ? null : "pooled, input " + i;
+					}
+				}));
+			}
+		}
+		for (Future<String> f : results){
+			String failed = f.get();
+			if (failed != null) fail(failed);
+		}
+		workers.shutdown();
+
+		System.out.println("VoronoiGeneratorCheck: " + (ROUNDS*input.length*2) + " sweeps matched");
+	}
+
+	// the edges of one sweep, copied out of the generator's buffer
+	private static double[] edges(VoronoiGenerator g, PointStore sites){
+		VoronoiDcel D = g.sweep(sites);
+		return Arrays.copyOf(g.getEdges(), ClipWindow.EDGE_STRIDE*D.getEdgeCount());
+	}
+
+	private static void check(String name, double[] expected, double[] got){
+		if (!Arrays.equals(expected, got)) fail(name);
+	}
+
+	private static void fail(String name){
+		System.err.println("VoronoiGeneratorCheck: " + name + ": the edges differ from a fresh generator's");
+		System.exit(1);
+	}
+}